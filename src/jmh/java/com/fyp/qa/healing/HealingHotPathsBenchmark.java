@@ -0,0 +1,171 @@
+package com.fyp.qa.healing;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// CPU-side hot paths of one heal, on synthetic pages of 50 / 200 / 2000 candidates.
+// Run: mvn -Pbenchmark -DskipTests compile exec:exec   (JSON results in target/jmh-result.json)
+// The browser is a stub that answers every XPath count with 1, so only Java work is measured.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HealingHotPathsBenchmark {
+
+    @Param({ "50", "200", "2000" })
+    public int size;
+
+    private SelfHealingEngine engine;
+    private List<Map<String, Object>> raw;
+    private List<HealDTO.Candidate> candidates;
+    private HealDTO.HealRequest request;
+    private ObjectMapper mapper;
+    private String[] texts;
+    private byte[] jsonBody;
+    private byte[] compactBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        engine = new SelfHealingEngine(stubDriver(), HealingConfig.builder()
+                .enablePersistentCache(false)
+                .metricsFile("")
+                .build());
+        raw = SyntheticCandidates.rawPage(size);
+        candidates = SyntheticCandidates.page(size);
+        HealDTO.OldElement old = new HealDTO.OldElement("login", "button", "//button[@data-test='login-button']", "login", 0);
+        old.dataTestId = "login-button";
+        request = new HealDTO.HealRequest(old, candidates);
+        mapper = new ObjectMapper();
+        jsonBody = mapper.writeValueAsBytes(request);
+        ByteArrayOutputStream compact = new ByteArrayOutputStream();
+        CompactHealCodec.encode(mapper, request, compact);
+        compactBody = compact.toByteArray();
+        texts = new String[candidates.size()];
+        for (int i = 0; i < texts.length; i++) {
+            HealDTO.Candidate c = candidates.get(i);
+            texts[i] = c.text + " " + c.ariaLabel + " " + c.placeholder + " " + c.id;
+        }
+    }
+
+    // tryRewriteTextLocator: similarity of the old text against every candidate's text
+    @Benchmark
+    public void seqSim(Blackhole bh) {
+        String old = TextSimilarity.norm("Login button");
+        for (String t : texts) bh.consume(TextSimilarity.seqSim(old, TextSimilarity.norm(t)));
+    }
+
+    // same search through the shared n-gram index (index built once per candidate list, reused here)
+    @Benchmark
+    public int textRewriteIndexed() {
+        return CandidateTextIndex.of(candidates).bestTextMatch(TextSimilarity.norm("Login button"), 0.55);
+    }
+
+    @Benchmark
+    public void fuzzyTokenMatch(Blackhole bh) {
+        for (String t : texts) bh.consume(engine.fuzzyTokenMatch(t, "sauce labs backpack"));
+    }
+
+    @Benchmark
+    public void normalizeTokensAndHint(Blackhole bh) {
+        for (String t : texts) {
+            bh.consume(engine.normalizeTokens(t));
+            bh.consume(engine.normalizeHint(t));
+        }
+    }
+
+    @Benchmark
+    public List<HealDTO.Candidate> filterByTagGroup() {
+        return engine.filterByTagGroup(candidates, "button");
+    }
+
+    @Benchmark
+    public HealResult attributeFallback() {
+        return engine.attributeFallback("//button[@data-test='login-button-v2']", candidates);
+    }
+
+    // token only present on the last candidates -> full scan
+    @Benchmark
+    public boolean anyCandidateContainsToken() {
+        return engine.anyCandidateContainsToken(candidates, "password");
+    }
+
+    // one heal's worth of locator parsing: the first call parses, every later stage hits the cache
+    @Benchmark
+    public LocatorDescriptor locatorParse() {
+        return LocatorDescriptor.parseUncached("//input[@data-test='login-button' and contains(@placeholder,'Username')]");
+    }
+
+    @Benchmark
+    public LocatorDescriptor locatorCached() {
+        return LocatorDescriptor.parse("//input[@data-test='login-button' and contains(@placeholder,'Username')]");
+    }
+
+    @Benchmark
+    public List<HealDTO.Candidate> toCandidates() {
+        return CandidateExtractor.toCandidates(raw);
+    }
+
+    // request body: plain JSON vs the dictionary-coded Smile form (heal.http.compact), both directions
+    @Benchmark
+    public void serializeRequestJson() throws IOException {
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            mapper.writeValue(gen, request);
+        }
+    }
+
+    @Benchmark
+    public void serializeRequestCompact() throws IOException {
+        CompactHealCodec.encode(mapper, request, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public HealDTO.HealRequest parseRequestJson() throws IOException {
+        return mapper.readValue(jsonBody, HealDTO.HealRequest.class);
+    }
+
+    @Benchmark
+    public HealDTO.HealRequest parseRequestCompact() throws IOException {
+        return CompactHealCodec.decode(mapper, new ByteArrayInputStream(compactBody));
+    }
+
+    // executeScript -> 1 (every XPath probe finds exactly one match); everything else is a no-op
+    private static WebDriver stubDriver() {
+        return (WebDriver) java.lang.reflect.Proxy.newProxyInstance(
+                HealingHotPathsBenchmark.class.getClassLoader(),
+                new Class<?>[] { WebDriver.class, JavascriptExecutor.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "executeScript": return 1L;
+                        case "toString": return "StubDriver";
+                        case "hashCode": return System.identityHashCode(proxy);
+                        case "equals": return proxy == args[0];
+                        default: return null;
+                    }
+                });
+    }
+}
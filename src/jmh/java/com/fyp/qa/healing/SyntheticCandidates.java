@@ -0,0 +1,89 @@
+package com.fyp.qa.healing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Deterministic fake pages for the benchmarks: a login form buried in `size` generic elements,
+// shaped like what CandidateExtractor returns from a real page.
+final class SyntheticCandidates {
+
+    private static final String[] TAGS = { "div", "span", "a", "button", "input", "li", "p", "label" };
+    private static final String[] WORDS = {
+            "home", "products", "backpack", "bike", "light", "jacket", "onesie", "shirt", "cart", "checkout",
+            "menu", "about", "logout", "reset", "filter", "sort", "price", "name", "add", "remove", "sauce", "labs"
+    };
+
+    private SyntheticCandidates() {}
+
+    static List<Map<String, Object>> rawPage(int size) {
+        Random rnd = new Random(42);
+        List<Map<String, Object>> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String tag = TAGS[rnd.nextInt(TAGS.length)];
+            String text = WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)];
+            String slug = text.replace(' ', '-') + "-" + i;
+            Map<String, Object> m = new HashMap<>();
+            m.put("xpath", "//" + tag + "[@id='" + slug + "']");
+            m.put("text", tag.equals("input") ? "" : text);
+            m.put("tag", tag);
+            m.put("idx", i);
+            m.put("ariaLabel", rnd.nextInt(4) == 0 ? text : "");
+            m.put("id", slug);
+            m.put("name", tag.equals("input") ? slug : "");
+            m.put("className", "inventory_item " + tag + "-" + (i % 7));
+            m.put("placeholder", tag.equals("input") ? text : "");
+            m.put("type", tag.equals("input") ? "text" : "");
+            m.put("dataTestId", rnd.nextInt(3) == 0 ? slug : "");
+            m.put("value", "");
+            m.put("role", tag.equals("a") ? "link" : "");
+            m.put("title", "");
+            m.put("labelText", "");
+            m.put("parentText", WORDS[rnd.nextInt(WORDS.length)]);
+            m.put("headingContext", "Products");
+            m.put("ancestorChain", "html>body>div#root>div.page>div." + tag);
+            m.put("domDepth", 6 + rnd.nextInt(10));
+            m.put("siblingBefore", "");
+            m.put("siblingAfter", "");
+            m.put("nearbyText", text);
+            m.put("isVisible", Boolean.TRUE);
+            m.put("isEnabled", Boolean.TRUE);
+            m.put("bboxX", rnd.nextInt(1200));
+            m.put("bboxY", rnd.nextInt(3000));
+            m.put("bboxW", 40 + rnd.nextInt(200));
+            m.put("bboxH", 20 + rnd.nextInt(40));
+            out.add(m);
+        }
+        // the elements the benchmarked locators are looking for sit at the end — worst case for linear scans
+        out.add(input(size, "user-name-v2", "username", "Username", "text"));
+        out.add(input(size + 1, "pass-v2", "password", "Password", "password"));
+        Map<String, Object> login = input(size + 2, "login-btn-v2", "", "", "submit");
+        login.put("tag", "button");
+        login.put("text", "Login");
+        login.put("xpath", "//button[@id='login-btn-v2']");
+        login.put("dataTestId", "login-button-v2");
+        out.add(login);
+        return out;
+    }
+
+    static List<HealDTO.Candidate> page(int size) {
+        return CandidateExtractor.toCandidates(rawPage(size));
+    }
+
+    private static Map<String, Object> input(int idx, String id, String name, String placeholder, String type) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("xpath", "//input[@id='" + id + "']");
+        m.put("text", "");
+        m.put("tag", "input");
+        m.put("idx", idx);
+        m.put("id", id);
+        m.put("name", name);
+        m.put("placeholder", placeholder);
+        m.put("type", type);
+        m.put("dataTestId", id);
+        m.put("isVisible", Boolean.TRUE);
+        return m;
+    }
+}
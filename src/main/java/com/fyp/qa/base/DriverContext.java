@@ -0,0 +1,85 @@
+package com.fyp.qa.base;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Browser session of the CURRENT test thread (driver, wait, js, UIActionBase).
+// Each TestNG worker thread gets its own session, so parallel="methods"/"classes" runs don't share a browser.
+public final class DriverContext {
+
+    public static final class Session {
+        public final WebDriver driver;
+        public final WebDriverWait wait;
+        public final JavascriptExecutor js;
+        public final UIActionBase webUI;
+        // how the session ends: quit, or hand the browser back to a DriverPool
+        final Consumer<WebDriver> closer;
+
+        Session(WebDriver driver, Duration waitTimeout, Consumer<WebDriver> closer) {
+            this.driver = driver;
+            this.closer = closer;
+            this.wait = new WebDriverWait(driver, waitTimeout);
+            this.js = (JavascriptExecutor) driver;
+            this.webUI = new UIActionBase(driver, wait);
+        }
+    }
+
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+    // every live session, so a suite listener / shutdown can close browsers left open by other threads
+    private static final Set<Session> OPEN = ConcurrentHashMap.newKeySet();
+
+    private DriverContext() {}
+
+    public static Session start(WebDriver driver, Duration waitTimeout) {
+        return start(driver, waitTimeout, WebDriver::quit);
+    }
+
+    public static Session start(WebDriver driver, Duration waitTimeout, Consumer<WebDriver> closer) {
+        Session s = new Session(driver, waitTimeout, closer);
+        CURRENT.set(s);
+        OPEN.add(s);
+        return s;
+    }
+
+    // null when this thread has no browser yet
+    public static Session current() {
+        return CURRENT.get();
+    }
+
+    public static WebDriver driver() {
+        Session s = CURRENT.get();
+        return s == null ? null : s.driver;
+    }
+
+    // Ends this thread's session (quit, or back to the pool) and detaches it from the thread.
+    public static void quit() {
+        Session s = CURRENT.get();
+        CURRENT.remove();
+        if (s == null) return;
+        OPEN.remove(s);
+        s.closer.accept(s.driver);
+    }
+
+    // Quits every browser still open on any thread — end of a parallel suite.
+    public static void quitAll() {
+        for (Session s : OPEN) {
+            try {
+                s.closer.accept(s.driver);
+            } catch (Exception ignored) {
+                // already gone
+            }
+        }
+        OPEN.clear();
+        CURRENT.remove();
+    }
+
+    public static int openSessions() {
+        return OPEN.size();
+    }
+}
@@ -0,0 +1,165 @@
+package com.fyp.qa.base;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Warm browser sessions: `size` drivers are launched in the background, tests lease one and hand it
+// back after a fast reset (cookies, storage, extra windows, about:blank) instead of paying Chrome's
+// cold start every time. Sessions that fail the health check or the reset are quit and replaced.
+// Reset contract: cookies of every origin are cleared on Chromium (CDP), of the current origin
+// elsewhere; storage (local/session, IndexedDB, cache, service workers) only for the origin the
+// session is on at release — storage written by other origins the test visited survives.
+public class DriverPool {
+
+    private static final Logger LOGGER = Logger.getLogger(DriverPool.class.getName());
+
+    private final Supplier<WebDriver> factory;
+    private final int size;
+    private final BlockingQueue<WebDriver> idle = new LinkedBlockingQueue<>();
+    private final Set<WebDriver> all = ConcurrentHashMap.newKeySet();
+    private final ExecutorService launcher;
+    private volatile boolean closed;
+
+    public DriverPool(Supplier<WebDriver> factory, int size) {
+        this.factory = factory;
+        this.size = Math.max(1, size);
+        this.launcher = Executors.newFixedThreadPool(Math.min(this.size, 4), r -> {
+            Thread t = new Thread(r, "driver-pool-launcher");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < this.size; i++) launchAsync();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "driver-pool-shutdown"));
+    }
+
+    // Warm session, or a freshly launched one if none becomes ready within `wait`.
+    public WebDriver lease(Duration wait) {
+        long deadline = System.nanoTime() + wait.toNanos();
+        while (!closed) {
+            WebDriver d;
+            try {
+                d = idle.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (d == null) break;
+            if (healthy(d)) return d;
+            LOGGER.warning("DriverPool: replacing sick session");
+            discard(d);
+            launchAsync();
+        }
+        // pool empty (all leased or still launching) — don't make the test wait longer than a cold start
+        WebDriver d = factory.get();
+        all.add(d);
+        return d;
+    }
+
+    // Reset and put back; a session that can't be reset is replaced.
+    public void release(WebDriver d) {
+        if (d == null) return;
+        if (closed || !reset(d)) {
+            discard(d);
+            if (!closed) launchAsync();
+            return;
+        }
+        // leases beyond `size` (cold starts while the pool was empty) are not kept
+        if (idle.size() >= size) discard(d);
+        else idle.offer(d);
+    }
+
+    public int idleCount() {
+        return idle.size();
+    }
+
+    public void shutdown() {
+        closed = true;
+        launcher.shutdownNow();
+        List<WebDriver> open = new ArrayList<>(all);
+        for (WebDriver d : open) discard(d);
+        idle.clear();
+    }
+
+    private void launchAsync() {
+        launcher.execute(() -> {
+            try {
+                WebDriver d = factory.get();
+                all.add(d);
+                if (closed) discard(d);
+                else idle.offer(d);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "DriverPool: failed to launch session", e);
+            }
+        });
+    }
+
+    private static boolean healthy(WebDriver d) {
+        try {
+            d.getWindowHandles();
+            return Long.valueOf(1L).equals(((JavascriptExecutor) d).executeScript("return 1;"));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // close extra windows, clear cookies + storage (see the contract above), park on about:blank
+    private static boolean reset(WebDriver d) {
+        try {
+            List<String> handles = new ArrayList<>(d.getWindowHandles());
+            for (int i = 1; i < handles.size(); i++) {
+                d.switchTo().window(handles.get(i)).close();
+            }
+            d.switchTo().window(handles.get(0));
+            d.switchTo().defaultContent();
+            d.manage().deleteAllCookies();
+            if (d instanceof HasCdp) clearViaCdp((HasCdp) d, d);
+            ((JavascriptExecutor) d).executeScript(
+                    "try{window.localStorage&&localStorage.clear();}catch(e){}" +
+                    "try{window.sessionStorage&&sessionStorage.clear();}catch(e){}");
+            d.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "DriverPool: reset failed, discarding session", e);
+            return false;
+        }
+    }
+
+    // deleteAllCookies() only reaches the current origin; the browser-wide call drops every cookie jar entry
+    private static void clearViaCdp(HasCdp cdp, WebDriver d) {
+        try {
+            cdp.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+            Object origin = ((JavascriptExecutor) d).executeScript("return window.location.origin;");
+            if (origin instanceof String && ((String) origin).startsWith("http")) {
+                cdp.executeCdpCommand("Storage.clearDataForOrigin", Map.of("origin", origin, "storageTypes", "all"));
+            }
+        } catch (Exception e) {
+            // no CDP endpoint (e.g. remote session) — the WebDriver/JS reset below still runs
+            LOGGER.log(Level.FINE, "DriverPool: CDP reset unavailable", e);
+        }
+    }
+
+    private void discard(WebDriver d) {
+        all.remove(d);
+        try {
+            d.quit();
+        } catch (Exception ignored) {
+            // already gone
+        }
+    }
+}
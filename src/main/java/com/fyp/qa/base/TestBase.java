@@ -13,36 +13,79 @@ import java.util.logging.Logger;
 
 public class TestBase {
     protected static final Logger LOGGER = Logger.getLogger(TestBase.class.getName());
-    protected static WebDriver driver;
-    protected static WebDriverWait wait;
-    protected static JavascriptExecutor js;
-    protected static UIActionBase webUI;
 
+    // driver / wait / js / webUI belong to the calling test thread (see DriverContext),
+    // so tests can run with TestNG parallel="methods" — one browser per worker thread.
+    protected static WebDriver getDriver() {
+        return DriverContext.driver();
+    }
+
+    protected static WebDriverWait getWait() {
+        DriverContext.Session s = DriverContext.current();
+        return s == null ? null : s.wait;
+    }
+
+    protected static JavascriptExecutor getJs() {
+        DriverContext.Session s = DriverContext.current();
+        return s == null ? null : s.js;
+    }
+
+    protected static UIActionBase getWebUI() {
+        DriverContext.Session s = DriverContext.current();
+        return s == null ? null : s.webUI;
+    }
+
+
+    private static volatile DriverPool pool;
+
+    // created on first use, so runs without -Ddriver_pool_size never launch extra browsers
+    private static DriverPool pool() {
+        if (pool == null) {
+            synchronized (TestBase.class) {
+                if (pool == null) pool = new DriverPool(TestBase::newChromeDriver, Constants.DRIVER_POOL_SIZE);
+            }
+        }
+        return pool;
+    }
+
+    private static WebDriver newChromeDriver() {
+        ChromeOptions chromeOptions = new ChromeOptions();
+        chromeOptions.addArguments("--start-maximized");
+        chromeOptions.addArguments("--window-size=1920,1080");
+        chromeOptions.addArguments("--disable-dev-shm-usage");
+        chromeOptions.addArguments("--no-sandbox");
+        if(Constants.RUN_HEADLESS){
+            chromeOptions.addArguments("--headless", "--window-size=1920,1080");
+        }
+        WebDriver driver = new ChromeDriver(chromeOptions);
+        driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(30));
+        return driver;
+    }
 
     public static void initialization(){
-        if(driver == null){
+        if(DriverContext.current() == null){
             if(Constants.BROWSER_NAME.equalsIgnoreCase("chrome")){
                 try{
-                    ChromeOptions chromeOptions = new ChromeOptions();
-                    chromeOptions.addArguments("--start-maximized");
-                    chromeOptions.addArguments("--window-size=1920,1080");
-                    chromeOptions.addArguments("--disable-dev-shm-usage");
-                    chromeOptions.addArguments("--no-sandbox");
-                    if(Constants.RUN_HEADLESS){
-                        chromeOptions.addArguments("--headless", "--window-size=1920,1080");
-                    }
-                    driver = new ChromeDriver(chromeOptions);
-                    js = (JavascriptExecutor) driver;
-                    wait = new WebDriverWait(driver, Duration.ofSeconds(30));
-                    driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(30));
-                    driver.get(Constants.MAIN_URL);
+                    WebDriver driver;
+                    if (Constants.DRIVER_POOL_SIZE > 0) {
+                        // warm session from the pool; closeAllBrowsers() resets it and hands it back
+                        DriverPool p = pool();
+                        driver = p.lease(Duration.ofSeconds(Constants.DRIVER_POOL_LEASE_SECONDS));   // cold start if none is warm by then
+                        driver.get(Constants.MAIN_URL);
+                        driver.switchTo().defaultContent();
+                        DriverContext.start(driver, Duration.ofSeconds(30), p::release);
+                    } else {
+                        driver = newChromeDriver();
+                        driver.get(Constants.MAIN_URL);
 
-                    // Always reset context
-                    driver.switchTo().defaultContent();
+                        // Always reset context
+                        driver.switchTo().defaultContent();
 
-                    webUI = new UIActionBase(driver,wait);
+                        DriverContext.start(driver, Duration.ofSeconds(30));
+                    }
 
-                    LOGGER.info("WebDriver initialized and navigated to the URL: " + Constants.MAIN_URL);
+                    LOGGER.info("WebDriver initialized and navigated to the URL: " + Constants.MAIN_URL
+                            + " [" + Thread.currentThread().getName() + "]");
                 }catch(Exception e){
                     LOGGER.log(Level.SEVERE, "Failed to initialize WebDriver", e);
                 }
@@ -52,25 +95,19 @@ public class TestBase {
         }
     }
 
-    // Method to close the browser and clean up resources
+    // Method to close this thread's browser and clean up resources
     public static void closeAllBrowsers() {
-        if (driver != null) {
-//            driver.close();
-            driver.quit();
-            driver = null;  // Reset the driver to allow re-initialization in future tests
+        if (DriverContext.current() != null) {
+            DriverContext.quit();   // detaches the session so the next initialization() starts a fresh one
             LOGGER.info("All browsers are closed.");
         }
     }
 
     public static void setExternalDriver(WebDriver external) {
-        driver = external;
-        wait = new WebDriverWait(driver, Duration.ofSeconds(30));
-        js = (JavascriptExecutor) driver;
-
-        driver.manage().window().setSize(new Dimension(1920, 1080)); // ✅ force size
-        driver.switchTo().defaultContent();
+        external.manage().window().setSize(new Dimension(1920, 1080)); // ✅ force size
+        external.switchTo().defaultContent();
 
-        webUI = new UIActionBase(driver, wait);
+        DriverContext.start(external, Duration.ofSeconds(30));
     }
 
 
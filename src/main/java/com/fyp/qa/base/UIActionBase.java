@@ -2,17 +2,21 @@ package com.fyp.qa.base;
 
 import com.fyp.qa.healing.HealResult;
 import com.fyp.qa.healing.HealingConfig;
+import com.fyp.qa.healing.LocatorValidator;
+import com.fyp.qa.healing.ScopedLocator;
 import com.fyp.qa.healing.SelfHealingEngine;
 import com.fyp.qa.base.RunLogContext;
 
 import org.openqa.selenium.*;
 import org.openqa.selenium.interactions.Actions;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.List;
 
 //AI assistance was used for log creations
@@ -20,24 +24,27 @@ public class UIActionBase {
 
     private final WebDriver driver;
     private final WebDriverWait wait;
+    private final WebDriverWait shortWait;
     private final Actions actions;
     private static final Logger logger = LoggerFactory.getLogger(UIActionBase.class);
 
     // Healing engine
     private final HealingConfig healingConfig;
     private final SelfHealingEngine healingEngine;
+    // set once a ScopedLocator (iframe / shadow-root heal) was used — the driver may be inside a frame
+    private boolean insideHealedScope = false;
 
     public UIActionBase(WebDriver driver, WebDriverWait wait) {
         this.driver = driver;
         this.wait = wait;
         this.actions = new Actions(driver);
 
-        // You can set HEAL_API_URL in docker-compose for runner service.
-        String apiUrl = System.getenv().getOrDefault("HEAL_API_URL", "http://127.0.0.1:8000");
-
-        // You can later load these from config/properties
-        this.healingConfig = new HealingConfig(true, apiUrl, 200, 5);
+        // HEAL_API_URL (docker-compose for runner service) / heal.* system properties — see HealingConfig.Builder
+        this.healingConfig = HealingConfig.fromEnvironment();
+        String apiUrl = healingConfig.apiUrl;
         this.healingEngine = new SelfHealingEngine(driver, healingConfig);
+        // remembered heals were already verified once — no need for the full 30s wait on them
+        this.shortWait = new WebDriverWait(driver, Duration.ofSeconds(healingConfig.waitSeconds));
 
         // Useful once per session (shows in UI + IntelliJ)
         uiInfo("🧩 UIActionBase initialized | healApi=" + apiUrl + " | threshold=" + healingConfig.confidenceThreshold);
@@ -82,6 +89,19 @@ public class UIActionBase {
 
     // CLICK (with healing)
     public UIActionBase click(By by) {
+        leaveHealedScope();
+        By remembered = healingEngine.rememberedLocator(by);
+        if (remembered != null) {
+            try {
+                WebElement element = rememberedWait(ExpectedConditions.elementToBeClickable(scoped(remembered)));
+                element.click();
+                uiInfo("✅ CLICK success (remembered heal): " + by + " -> " + remembered);
+                return this;
+            } catch (Exception re) {
+                forgetRemembered("CLICK", by, remembered, re);
+            }
+        }
+
         try {
             uiInfo("➡️ CLICK: " + by);
 
@@ -96,8 +116,7 @@ public class UIActionBase {
 
             // Try healing
             uiWarn("🩹 HEAL(click) start | original=" + by);
-            healingConfig.actionName = "click";
-            HealResult result = healingEngine.heal(by);
+            HealResult result = healingEngine.heal(by, "click");
 
             if (result == null) {
                 uiError("🛑 HEAL(click) null result | original=" + by, e);
@@ -116,9 +135,10 @@ public class UIActionBase {
                         + " | confidence=" + result.confidence);
 
                 try {
-                    WebElement healedEl = wait.until(ExpectedConditions.elementToBeClickable(result.healedLocator));
+                    WebElement healedEl = wait.until(ExpectedConditions.elementToBeClickable(scoped(result.healedLocator)));
                     healedEl.click();
                     uiInfo("✅ HEAL(click) retry success | healed=" + result.healedLocator);
+                    healingEngine.confirmHeal(by, result);
                     return this;
 
                 } catch (Exception healEx) {
@@ -145,6 +165,20 @@ public class UIActionBase {
 
     // SEND KEYS (with healing)
     public UIActionBase sendKeys(By by, String data) {
+        leaveHealedScope();
+        By remembered = healingEngine.rememberedLocator(by);
+        if (remembered != null) {
+            try {
+                WebElement element = rememberedWait(ExpectedConditions.visibilityOfElementLocated(scoped(remembered)));
+                element.clear();
+                element.sendKeys(data);
+                uiInfo("✅ SENDKEYS success (remembered heal): " + by + " -> " + remembered);
+                return this;
+            } catch (Exception re) {
+                forgetRemembered("SENDKEYS", by, remembered, re);
+            }
+        }
+
         try {
             uiInfo("➡️ SENDKEYS: " + by + " | dataLen=" + (data == null ? 0 : data.length()));
 
@@ -161,8 +195,7 @@ public class UIActionBase {
             uiWarn("🩹 HEAL(sendKeys)[" + healId + "] start | original=" + by + " | apiUrl=" + healingConfig.apiUrl);
 
             long t0 = System.currentTimeMillis();
-            healingConfig.actionName = "sendKeys";
-            HealResult result = healingEngine.heal(by);
+            HealResult result = healingEngine.heal(by, "sendKeys");
             long ms = System.currentTimeMillis() - t0;
 
             uiInfo("🕒 HEAL(sendKeys)[" + healId + "] returned in " + ms + "ms | resultNull=" + (result == null));
@@ -183,10 +216,11 @@ public class UIActionBase {
                         + " | confidence=" + result.confidence);
 
                 try {
-                    WebElement healedEl = wait.until(ExpectedConditions.visibilityOfElementLocated(result.healedLocator));
+                    WebElement healedEl = wait.until(ExpectedConditions.visibilityOfElementLocated(scoped(result.healedLocator)));
                     healedEl.clear();
                     healedEl.sendKeys(data);
                     uiInfo("✅ HEAL(sendKeys)[" + healId + "] retry success | healed=" + result.healedLocator);
+                    healingEngine.confirmHeal(by, result);
 
                 } catch (Exception healEx) {
                     uiError("🛑 HEAL(sendKeys)[" + healId + "] retry failed | original=" + by
@@ -213,6 +247,19 @@ public class UIActionBase {
 
     // CLEAR (with healing)
     public UIActionBase clear(By by) {
+        leaveHealedScope();
+        By remembered = healingEngine.rememberedLocator(by);
+        if (remembered != null) {
+            try {
+                WebElement element = rememberedWait(ExpectedConditions.visibilityOfElementLocated(scoped(remembered)));
+                element.clear();
+                uiInfo("✅ CLEAR success (remembered heal): " + by + " -> " + remembered);
+                return this;
+            } catch (Exception re) {
+                forgetRemembered("CLEAR", by, remembered, re);
+            }
+        }
+
         try {
             uiInfo("➡️ CLEAR: " + by);
 
@@ -225,8 +272,7 @@ public class UIActionBase {
             uiWarn("❌ CLEAR failed: " + by + " | " + exBrief(e));
 
             uiWarn("🩹 HEAL(clear) start | original=" + by);
-            healingConfig.actionName = "sendKeys";
-            HealResult result = healingEngine.heal(by);
+            HealResult result = healingEngine.heal(by, "sendKeys");
 
             if (result == null) {
                 uiError("🛑 HEAL(clear) null result | original=" + by, e);
@@ -244,9 +290,10 @@ public class UIActionBase {
                         + " | confidence=" + result.confidence);
 
                 try {
-                    WebElement healedEl = wait.until(ExpectedConditions.visibilityOfElementLocated(result.healedLocator));
+                    WebElement healedEl = wait.until(ExpectedConditions.visibilityOfElementLocated(scoped(result.healedLocator)));
                     healedEl.clear();
                     uiInfo("✅ HEAL(clear) retry success | healed=" + result.healedLocator);
+                    healingEngine.confirmHeal(by, result);
 
                 } catch (Exception healEx) {
                     uiError("🛑 HEAL(clear) retry failed | original=" + by
@@ -273,6 +320,19 @@ public class UIActionBase {
 
     // OPTIONAL: HOVER (with healing)
     public UIActionBase hover(By by) {
+        leaveHealedScope();
+        By remembered = healingEngine.rememberedLocator(by);
+        if (remembered != null) {
+            try {
+                WebElement element = rememberedWait(ExpectedConditions.visibilityOfElementLocated(scoped(remembered)));
+                actions.moveToElement(element).perform();
+                uiInfo("✅ HOVER success (remembered heal): " + by + " -> " + remembered);
+                return this;
+            } catch (Exception re) {
+                forgetRemembered("HOVER", by, remembered, re);
+            }
+        }
+
         try {
             uiInfo("➡️ HOVER: " + by);
 
@@ -285,8 +345,7 @@ public class UIActionBase {
             uiWarn("❌ HOVER failed: " + by + " | " + exBrief(e));
 
             uiWarn("🩹 HEAL(hover) start | original=" + by);
-            healingConfig.actionName = "hover";
-            HealResult result = healingEngine.heal(by);
+            HealResult result = healingEngine.heal(by, "hover");
 
             if (result == null) {
                 uiError("🛑 HEAL(hover) null result | original=" + by, e);
@@ -304,9 +363,10 @@ public class UIActionBase {
                         + " | confidence=" + result.confidence);
 
                 try {
-                    WebElement healedEl = wait.until(ExpectedConditions.visibilityOfElementLocated(result.healedLocator));
+                    WebElement healedEl = wait.until(ExpectedConditions.visibilityOfElementLocated(scoped(result.healedLocator)));
                     actions.moveToElement(healedEl).perform();
                     uiInfo("✅ HEAL(hover) retry success | healed=" + result.healedLocator);
+                    healingEngine.confirmHeal(by, result);
 
                 } catch (Exception healEx) {
                     uiError("🛑 HEAL(hover) retry failed | original=" + by
@@ -333,6 +393,19 @@ public class UIActionBase {
 
     // OPTIONAL: GET TEXT (with healing)
     public String getText(By by) {
+        leaveHealedScope();
+        By remembered = healingEngine.rememberedLocator(by);
+        if (remembered != null) {
+            try {
+                WebElement element = rememberedWait(ExpectedConditions.visibilityOfElementLocated(scoped(remembered)));
+                String txt = element.getText();
+                uiInfo("✅ GETTEXT success (remembered heal): " + by + " -> " + remembered + " | text=" + txt);
+                return txt;
+            } catch (Exception re) {
+                forgetRemembered("GETTEXT", by, remembered, re);
+            }
+        }
+
         try {
             uiInfo("➡️ GETTEXT: " + by);
 
@@ -346,8 +419,7 @@ public class UIActionBase {
             uiWarn("❌ GETTEXT failed: " + by + " | " + exBrief(e));
 
             uiWarn("🩹 HEAL(getText) start | original=" + by);
-            healingConfig.actionName = "getText";
-            HealResult result = healingEngine.heal(by);
+            HealResult result = healingEngine.heal(by, "getText");
 
             if (result == null) {
                 uiError("🛑 HEAL(getText) null result | original=" + by, e);
@@ -365,9 +437,10 @@ public class UIActionBase {
                         + " | confidence=" + result.confidence);
 
                 try {
-                    WebElement healedEl = wait.until(ExpectedConditions.visibilityOfElementLocated(result.healedLocator));
+                    WebElement healedEl = wait.until(ExpectedConditions.visibilityOfElementLocated(scoped(result.healedLocator)));
                     String txt = healedEl.getText();
                     uiInfo("✅ HEAL(getText) retry success | healed=" + result.healedLocator + " | text=" + txt);
+                    healingEngine.confirmHeal(by, result);
                     return txt;
 
                 } catch (Exception healEx) {
@@ -391,6 +464,23 @@ public class UIActionBase {
         }
     }
 
+    // Validate all locators of a page object in one browser call and pre-heal the broken ones
+    public List<LocatorValidator.LocatorStatus> preHeal(Object pageObject) {
+        uiInfo("🔎 PREHEAL: " + pageObject.getClass().getSimpleName());
+        List<LocatorValidator.LocatorStatus> statuses = healingEngine.preHeal(pageObject);
+        for (LocatorValidator.LocatorStatus st : statuses) {
+            if (st.healResult != null) {
+                uiInfo("🧠 PREHEAL " + st.name + " | original=" + st.locator
+                        + " | healedXpath=" + st.healResult.healedXpath
+                        + " | confidence=" + st.healResult.confidence
+                        + " | decision=" + st.healResult.decision);
+            } else if (st.isBroken() || !st.error.isEmpty()) {
+                uiWarn("⚠️ PREHEAL " + st);
+            }
+        }
+        return statuses;
+    }
+
     public UIActionBase scrollToElementTillFound(By by) {
         try {
             JavascriptExecutor js = (JavascriptExecutor) driver;
@@ -409,6 +499,37 @@ public class UIActionBase {
         return this;
     }
 
+    // Remembered heal lookup: the short explicit wait only helps with implicit wait off — otherwise every
+    // poll of a vanished element still blocks for the driver's full implicit wait.
+    private WebElement rememberedWait(ExpectedCondition<WebElement> condition) {
+        return healingEngine.withoutImplicitWait(() -> shortWait.until(condition));
+    }
+
+    // A healed element inside an iframe is looked up (and acted on) from within that frame.
+    private By scoped(By healed) {
+        if (healed instanceof ScopedLocator) insideHealedScope = true;
+        return healed;
+    }
+
+    // Every action starts from the top document again after one that went into a healed iframe.
+    private void leaveHealedScope() {
+        if (!insideHealedScope) return;
+        insideHealedScope = false;
+        try {
+            driver.switchTo().defaultContent();
+        } catch (Exception e) {
+            logger.debug("defaultContent after scoped heal failed: {}", e.toString());
+        }
+    }
+
+    // Remembered heal no longer works (page changed) — drop it and go back to the original locator.
+    private void forgetRemembered(String action, By by, By remembered, Exception e) {
+        healingEngine.forgetHealed(by);
+        leaveHealedScope();
+        uiWarn("↩️ " + action + " remembered heal failed, trying original | original=" + by
+                + " | healed=" + remembered + " | " + exBrief(e));
+    }
+
     private boolean shouldAutoHeal(HealResult r) {
         return r != null
                 && r.decision != null
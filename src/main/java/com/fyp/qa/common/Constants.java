@@ -4,4 +4,8 @@ public class Constants {
     public static String MAIN_URL = "https://www.saucedemo.com/";
     public static boolean RUN_HEADLESS = Boolean.parseBoolean(System.getProperty("run_headless","false"));
     public static String BROWSER_NAME = System.getProperty("browser_name","chrome");
+    // warm browser sessions kept by DriverPool (0 = launch a new browser per test, the old behaviour)
+    public static int DRIVER_POOL_SIZE = Integer.getInteger("driver_pool_size", 0);
+    // how long initialization() waits for a warm session before launching its own browser
+    public static int DRIVER_POOL_LEASE_SECONDS = Integer.getInteger("driver_pool_lease_seconds", 2);
 }
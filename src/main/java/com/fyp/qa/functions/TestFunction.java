@@ -3,26 +3,27 @@ package com.fyp.qa.functions;
 import com.fyp.qa.pages.TestPage;
 
 public class TestFunction {
-    static TestPage testPage = new TestPage();
+    // one page object per test thread (parallel runs)
+    static final ThreadLocal<TestPage> testPage = ThreadLocal.withInitial(TestPage::new);
 
     public static void navigateToWidgets(){
-        testPage.clickOnWidgets();
+        testPage.get().clickOnWidgets();
     }
 
     public static void clickOnElements(){
-        testPage.clickOnElements();
+        testPage.get().clickOnElements();
     }
 
     public static void userNameInput(String userName){
-        testPage.userNameInput(userName);
+        testPage.get().userNameInput(userName);
     }
 
     public static void passwordInput(String password){
-        testPage.passwordInput(password);
+        testPage.get().passwordInput(password);
     }
 
     public static void clickLoginBtn(){
-        testPage.clickLoginBtn();
+        testPage.get().clickLoginBtn();
     }
 
 
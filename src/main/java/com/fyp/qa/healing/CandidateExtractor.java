@@ -2,6 +2,8 @@ package com.fyp.qa.healing;
 
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -9,6 +11,8 @@ import java.util.Map;
 
 public class CandidateExtractor {
 
+    private static final Logger logger = LoggerFactory.getLogger(CandidateExtractor.class);
+
     //AI assistance is used  when writing the CandidateExtractor code
     // WebDriver used to execute JavaScript inside the browser
     private final WebDriver driver;
@@ -28,17 +32,569 @@ public class CandidateExtractor {
                     "h1,h2,h3,h4,h5,h6,p,span,label,div,li,td,th,caption," +
                     "[aria-label],[data-testid],[data-test],[data-qa]";
 
+    // Functions identical in both script modes (xpath building + cheap per-element features)
+    private static final String SHARED_JS =
+            // Handles icon-only elements (extracts image info)
+            "function childImgFilename(e){\n" +
+            "  try {\n" +
+            "    if(!e.querySelector) return '';\n" +
+            "    const img = e.querySelector('img');\n" +
+            "    if(!img) return '';\n" +
+            "    const src = attr(img,'src') || attr(img,'data-src') || '';\n" +
+            "    const alt = attr(img,'alt');\n" +
+            // prefer alt text, fall back to filename without extension
+            "    if(alt) return alt;\n" +
+            "    const filename = src.split('/').pop().split('?')[0];\n" +
+            "    return filename.replace(/\\.[a-z]{2,4}$/i,'');\n" +
+            "  } catch(ex){ return ''; }\n" +
+            "}\n" +
+
+            // Builds a short path of parent elements (like a simplified CSS path)
+            "function ancestorChain(e){\n" +
+            "  try {\n" +
+            "    var parts=[]; var cur=e.parentElement; var d=0;\n" +
+            "    while(cur && d<5){\n" +
+            "      var t=(cur.tagName||'').toLowerCase();\n" +
+            "      var cls=safeStr(cur.className).split(' ')[0];\n" +
+            "      parts.push(cls?t+'.'+cls:t);\n" +
+            "      cur=cur.parentElement; d++;\n" +
+            "    }\n" +
+            "    return parts.join(' > ');\n" +
+            "  } catch(ex){ return ''; }\n" +
+            "}\n" +
+
+            // Calculates how deep element is in DOM
+            "function domDepth(e){\n" +
+            "  try{\n" +
+            "    var d=0; var cur=e.parentElement;\n" +
+            "    while(cur&&cur.nodeType===1){d++;cur=cur.parentElement;}\n" +
+            "    return d;\n" +
+            "  }catch(ex){return 0;}\n" +
+            "}\n" +
+
+            // Safely converts a string into a valid XPath literal
+            "function xpathLiteral(s){\n" +
+            "  s=safeStr(s);\n" +
+            "  if(s.indexOf(\"'\")===-1) return \"'\"+s+\"'\";\n" +
+            "  if(s.indexOf('\"')===-1) return '\"'+s+'\"';\n" +
+            "  const parts=s.split(\"'\"); const out=[];\n" +
+            "  for(let i=0;i<parts.length;i++){if(parts[i].length)out.push(\"'\"+parts[i]+\"'\");if(i!==parts.length-1)out.push('\"\\\\\\''+'\"');}\n" +
+            "  return 'concat('+out.join(',')+')';\n" +
+            "}\n" +
+
+            // ── stableXPath ───────────────────────────────────────────────────
+            // Priority: id > dataTestId > name > placeholder > aria-label > href > positional
+            "function stableXPath(e){\n" +
+            "  const tag=(e.tagName||'').toLowerCase();\n" +
+            "  const id=safeStr(e.id);\n" +
+            "  if(id) return '//*[@id='+xpathLiteral(id)+']';\n" +
+            "  const dt=attr(e,'data-testid')||attr(e,'data-test')||attr(e,'data-qa');\n" +
+            "  if(dt) return '//*[(@data-testid='+xpathLiteral(dt)+' or @data-test='+xpathLiteral(dt)+' or @data-qa='+xpathLiteral(dt)+')]';\n" +
+            "  const nm=attr(e,'name');\n" +
+            "  if(nm) return '//'+tag+'[@name='+xpathLiteral(nm)+']';\n" +
+            "  const ph=attr(e,'placeholder');\n" +
+            "  if(ph) return '//'+tag+'[@placeholder='+xpathLiteral(ph)+']';\n" +
+            "  const al=attr(e,'aria-label');\n" +
+            "  if(al) return '//'+tag+'[@aria-label='+xpathLiteral(al)+']';\n" +
+            // href fallback for links — gives cleaner xpath than positional
+            "  const href=attr(e,'href');\n" +
+            "  if(href && href!=='#' && !href.startsWith('javascript') && href.length<150)\n" +
+            "    return '//'+tag+'[@href='+xpathLiteral(href)+']';\n" +
+            // positional fallback — last resort
+            "  const parts=[]; let el=e;\n" +
+            "  while(el&&el.nodeType===1){\n" +
+            "    let ix=1; let sib=el.previousSibling;\n" +
+            "    while(sib){if(sib.nodeType===1&&sib.tagName===el.tagName)ix++;sib=sib.previousSibling;}\n" +
+            "    parts.unshift(el.tagName.toLowerCase()+'['+ix+']');\n" +
+            "    el=el.parentNode;\n" +
+            "  }\n" +
+            // inside a shadow root the walk ends at the root, not the document — anchor the path there
+            "  return (el&&el.nodeType===11 ? './' : '//')+parts.join('/');\n" +
+            "}\n";
+
+    // Optimised script: same output fields as the legacy one, but
+    //  - layout (getComputedStyle + getBoundingClientRect) is read ONCE per element, in a read-only phase
+    //  - label / heading / innerText lookups are memoised per element, so siblings share their parent's work
+    //  - hidden-helper text (.sr-only, aria-hidden, script, style) is skipped with a TreeWalker, no cloneNode
+    // Written as a library (functions + collect(sel, cap)) so it can be installed once per document.
+    private static final String OPTIMIZED_LIB =
+            "function safeStr(v){ return (v==null? '': (''+v)).trim(); }\n" +
+            "function attr(e,n){ return safeStr(e.getAttribute(n)); }\n" +
+
+            // ── layout cache ──────────────────────────────────────────────────
+            // memo tables are reset on every collect() — layout/text may have changed between heals
+            "let layout, innerMemo, labelMemo, headingMemo, labelsFor;\n" +
+            "function resetMemo(){ layout=new Map(); innerMemo=new Map(); labelMemo=new Map(); headingMemo=new Map(); labelsFor=new Map(); }\n" +
+            "function readLayout(e){\n" +
+            "  let l = layout.get(e);\n" +
+            "  if(l) return l;\n" +
+            // elements of a same-origin iframe are styled by that frame's window
+            "  const st = (e.ownerDocument.defaultView||window).getComputedStyle(e);\n" +
+            "  const r = e.getBoundingClientRect();\n" +
+            "  const vis = !!st && st.display!=='none' && st.visibility!=='hidden' && parseFloat(st.opacity||'1')!==0\n" +
+            "      && !!r && r.width>=2 && r.height>=2;\n" +
+            "  l = {vis:vis, x:r?r.left:0, y:r?r.top:0, w:r?r.width:0, h:r?r.height:0};\n" +
+            "  layout.set(e, l);\n" +
+            "  return l;\n" +
+            "}\n" +
+            "function isVisible(e){ return !!e && readLayout(e).vis; }\n" +
+
+            // ── text without cloning ──────────────────────────────────────────
+            "const SKIP_LABEL = '.sr-only,[aria-hidden=\"true\"]';\n" +
+            "const SKIP_TEXT  = '.sr-only,[aria-hidden=\"true\"],script,style';\n" +
+            "function textWithout(root, skipSel){\n" +
+            "  let out = '';\n" +
+            "  const w = document.createTreeWalker(root, NodeFilter.SHOW_ELEMENT|NodeFilter.SHOW_TEXT, {acceptNode: function(n){\n" +
+            "    if(n.nodeType===3) return NodeFilter.FILTER_ACCEPT;\n" +
+            "    return (n!==root && n.matches && n.matches(skipSel)) ? NodeFilter.FILTER_REJECT : NodeFilter.FILTER_SKIP;\n" +
+            "  }});\n" +
+            "  let n; while((n = w.nextNode())) out += n.data;\n" +
+            "  return out;\n" +
+            "}\n" +
+            "function cleanInnerText(e){\n" +
+            "  try { return safeStr(textWithout(e, SKIP_TEXT)||e.value||''); }\n" +
+            "  catch(ex){ return safeStr(e.innerText||e.value||''); }\n" +
+            "}\n" +
+
+            // ── memoised lookups ──────────────────────────────────────────────
+            "function rawInner(e){\n" +
+            "  let t = innerMemo.get(e);\n" +
+            "  if(t===undefined){ t = e.innerText||''; innerMemo.set(e, t); }\n" +
+            "  return t;\n" +
+            "}\n" +
+            "function labelOf(lab){\n" +
+            "  let t = labelMemo.get(lab);\n" +
+            "  if(t===undefined){ t = safeStr(textWithout(lab, SKIP_LABEL)); labelMemo.set(lab, t); }\n" +
+            "  return t;\n" +
+            "}\n" +
+            "function labelText(e){\n" +
+            "  try {\n" +
+            "    const lab = e.closest ? e.closest('label') : null;\n" +
+            "    if(lab){ const t = labelOf(lab); if(t) return t; }\n" +
+            "    const id = safeStr(e.id);\n" +
+            "    if(!id) return '';\n" +
+            // one pass over label[for] per document / shadow root instead of a querySelector per element
+            "    const root = e.getRootNode ? e.getRootNode() : document;\n" +
+            "    let byFor = labelsFor.get(root);\n" +
+            "    if(!byFor){\n" +
+            "      byFor = new Map();\n" +
+            "      root.querySelectorAll('label[for]').forEach(function(l){\n" +
+            "        const f = l.getAttribute('for'); if(!byFor.has(f)) byFor.set(f, l);\n" +
+            "      });\n" +
+            "      labelsFor.set(root, byFor);\n" +
+            "    }\n" +
+            "    const lab2 = byFor.get(id);\n" +
+            "    return lab2 ? labelOf(lab2) : '';\n" +
+            "  } catch(ex){ return ''; }\n" +
+            "}\n" +
+            "function firstHeadingIn(cur){\n" +
+            "  if(headingMemo.has(cur)) return headingMemo.get(cur);\n" +
+            "  const h = cur.querySelector ? cur.querySelector('h1,h2,h3,h4,h5,h6') : null;\n" +
+            "  const v = h ? safeStr(rawInner(h)) : null;\n" +
+            "  headingMemo.set(cur, v);\n" +
+            "  return v;\n" +
+            "}\n" +
+            "function headingContext(e){\n" +
+            "  try {\n" +
+            "    let cur = e.parentElement; let depth = 0;\n" +
+            "    while(cur && depth < 8){\n" +
+            "      if(/^h[1-6]$/.test((cur.tagName||'').toLowerCase())) return safeStr(rawInner(cur));\n" +
+            "      const h = firstHeadingIn(cur);\n" +
+            "      if(h!==null) return h;\n" +
+            "      cur = cur.parentElement; depth++;\n" +
+            "    }\n" +
+            "    return '';\n" +
+            "  } catch(ex){ return ''; }\n" +
+            "}\n" +
+            "function siblingText(e,direction){\n" +
+            "  try{\n" +
+            "    const texts=[]; let sib=direction==='before'?e.previousElementSibling:e.nextElementSibling;\n" +
+            "    let limit=2;\n" +
+            "    while(sib&&limit-->0){\n" +
+            "      const t=safeStr(rawInner(sib)||sib.textContent||'');\n" +
+            "      if(t) texts.push(t);\n" +
+            "      sib=direction==='before'?sib.previousElementSibling:sib.nextElementSibling;\n" +
+            "    }\n" +
+            "    return texts.join(' | ');\n" +
+            "  }catch(ex){return '';}\n" +
+            "}\n" +
+
+            SHARED_JS +
+
+            // ── INCREMENTAL INDEX (MutationObserver) ──────────────────────────
+            // Text features of an element are reused while neither it nor its parent subtree changed.
+            // A mutation drops the cached features of the touched element, its ancestors and every child
+            // of those (a changed parent subtree covers parentText / nearbyText / siblings) right away, so
+            // an element the next extraction doesn't recompute (other tag tier, past the cap, hidden) can't
+            // keep stale features. `invalidated` only saves re-walking a path already dropped since the
+            // last sync. Layout, xpath, heading and ancestor chain are always recomputed (cheap with the
+            // memo tables, and layout can change without any mutation).
+            "let observer = null, featCache = null, invalidated = null, labelsDirty = false, lastReused = 0, lastScanned = 0, lastTier = 0;\n" +
+            "function markDirty(n){\n" +
+            "  let el = n && (n.nodeType===1 ? n : n.parentElement);\n" +
+            "  if(el && el.closest && el.closest('label')) labelsDirty = true;\n" +
+            "  while(el && !invalidated.has(el)){\n" +
+            "    invalidated.add(el); featCache.delete(el);\n" +
+            "    for(let c = el.firstElementChild; c; c = c.nextElementSibling) featCache.delete(c);\n" +
+            "    el = el.parentElement;\n" +
+            "  }\n" +
+            "}\n" +
+            "function onMutations(muts){\n" +
+            "  for(const m of muts){\n" +
+            "    markDirty(m.target);\n" +
+            "    if(m.type!=='childList') continue;\n" +
+            // a label added/removed anywhere can change labelText of a far-away input (label[for])
+            "    for(const list of [m.addedNodes, m.removedNodes]){\n" +
+            "      for(const r of list){\n" +
+            "        if(r.nodeType===1 && (r.tagName==='LABEL' || (r.querySelector && r.querySelector('label')))) labelsDirty = true;\n" +
+            "      }\n" +
+            "    }\n" +
+            "  }\n" +
+            "}\n" +
+            "function syncIndex(){\n" +
+            "  if(!observer){\n" +
+            "    featCache = new WeakMap(); invalidated = new WeakSet(); labelsDirty = false;\n" +
+            "    observer = new MutationObserver(onMutations);\n" +
+            "    observer.observe(document.documentElement, {subtree:true, childList:true, attributes:true, characterData:true});\n" +
+            "    return;\n" +
+            "  }\n" +
+            // pick up records the observer callback hasn't delivered yet
+            "  onMutations(observer.takeRecords());\n" +
+            "  if(labelsDirty){ featCache = new WeakMap(); labelsDirty = false; }\n" +
+            "  invalidated = new WeakSet();\n" +
+            "}\n" +
+            "function cachedFeatures(e){\n" +
+            "  return featCache.get(e) || null;\n" +
+            "}\n" +
+
+            // ── SCOPES (open shadow roots + same-origin iframes) ──────────────
+            // One breadth-first walk from the top document. A scope is {root, path, dx, dy}: path = XPaths of
+            // the iframe / shadow-host elements leading to root (each relative to the scope above it), dx/dy =
+            // iframe offset so bounding boxes stay in top-page coordinates. Top-document candidates come first.
+            // Hosts of the top document: when the library is installed (persistent), one full walk on the first
+            // call, then a childList observer adds hosts from inserted subtrees — a page without iframes or
+            // shadow roots costs no walk after that. Not seen: a shadow root attached to an element already in
+            // the page without any insertion (late custom-element upgrade). The one-shot script walks every time.
+            "const MAX_SCOPES = 64;\n" +
+            "let persistent = false, topHosts = null, hostObserver = null;\n" +
+            "function isHost(e){ return !!e.shadowRoot || e.tagName==='IFRAME' || e.tagName==='FRAME'; }\n" +
+            "function hostsIn(root, into){\n" +
+            "  if(root.nodeType===1 && isHost(root)) into.push(root);\n" +
+            "  const w = (root.ownerDocument||root).createTreeWalker(root, NodeFilter.SHOW_ELEMENT);\n" +
+            "  let e;\n" +
+            "  while((e = w.nextNode())) if(isHost(e)) into.push(e);\n" +
+            "  return into;\n" +
+            "}\n" +
+            "function onInserted(muts){\n" +
+            "  for(const m of muts) for(const r of m.addedNodes) if(r.nodeType===1) hostsIn(r, []).forEach(function(h){ topHosts.add(h); });\n" +
+            "}\n" +
+            "function topLevelHosts(){\n" +
+            "  if(!persistent) return hostsIn(document, []);\n" +
+            "  if(!topHosts){\n" +
+            "    topHosts = new Set(hostsIn(document, []));\n" +
+            "    hostObserver = new MutationObserver(onInserted);\n" +
+            "    hostObserver.observe(document.documentElement, {subtree:true, childList:true});\n" +
+            "  } else onInserted(hostObserver.takeRecords());\n" +
+            "  const live = [];\n" +
+            "  for(const h of topHosts){ if(h.isConnected) live.push(h); else topHosts.delete(h); }\n" +
+            // document order, as the walk would have found them (4 = DOCUMENT_POSITION_FOLLOWING)
+            "  return live.sort(function(a, b){ return (a.compareDocumentPosition(b) & 4) ? -1 : 1; });\n" +
+            "}\n" +
+            "function scopedXPath(e, depth){\n" +
+            "  const xp = stableXPath(e);\n" +
+            "  return depth > 0 && xp.charAt(0)==='/' ? '.'+xp : xp;\n" +
+            "}\n" +
+            "function scopesOf(traverse){\n" +
+            "  const scopes = [{root: document, path: [], dx: 0, dy: 0}];\n" +
+            "  if(!traverse) return scopes;\n" +
+            "  for(let k=0; k<scopes.length && scopes.length<MAX_SCOPES; k++){\n" +
+            "    const s = scopes[k];\n" +
+            "    const hosts = k===0 ? topLevelHosts() : hostsIn(s.root, []);\n" +
+            "    for(const e of hosts){\n" +
+            "      if(scopes.length>=MAX_SCOPES) break;\n" +
+            "      if(e.shadowRoot){\n" +
+            "        scopes.push({root: e.shadowRoot, path: s.path.concat([scopedXPath(e, s.path.length)]), dx: s.dx, dy: s.dy});\n" +
+            "      } else if(e.tagName==='IFRAME' || e.tagName==='FRAME'){\n" +
+            // cross-origin frames throw or give null — they stay out of reach, as before
+            "        let d = null; try { d = e.contentDocument; } catch(ex){}\n" +
+            "        if(!d || !d.documentElement || !isVisible(e)) continue;\n" +
+            "        const r = readLayout(e);\n" +
+            "        scopes.push({root: d, path: s.path.concat([scopedXPath(e, s.path.length)]),\n" +
+            "                     dx: s.dx + r.x + e.clientLeft, dy: s.dy + r.y + e.clientTop});\n" +
+            "      }\n" +
+            "    }\n" +
+            "  }\n" +
+            "  return scopes;\n" +
+            "}\n" +
+
+            // ── TAG FILTER (same tiers as SelfHealingEngine.filterByTagGroup) ──
+            // filter = {tag, group}: exact tag first, then the tag group, else everything. Runs on the capped
+            // list, so the survivors (and their idx) are exactly what the Java filter would have kept.
+            "function tagTier(els, filter){\n" +
+            "  const all = els.map(function(e,i){ return i; });\n" +
+            "  if(!filter || !filter.tag) return {tier: 0, keep: all};\n" +
+            "  const tagOf = function(i){ return (els[i].tagName||'').toLowerCase(); };\n" +
+            "  const exact = all.filter(function(i){ return tagOf(i)===filter.tag; });\n" +
+            "  if(exact.length) return {tier: 1, keep: exact};\n" +
+            "  const group = all.filter(function(i){ return filter.group.indexOf(tagOf(i))>=0; });\n" +
+            "  if(group.length) return {tier: 2, keep: group};\n" +
+            "  return {tier: 3, keep: all};\n" +
+            "}\n" +
+
+            // ── COLLECT CANDIDATES (read phase) ───────────────────────────────
+            // selArg = cssSelector (empty string = use default), capArg = maxCandidates cap
+            "function collect(selArg, capArg, incremental, traverse, filter){\n" +
+            "resetMemo();\n" +
+            "lastReused = 0;\n" +
+            "if(incremental) syncIndex();\n" +
+            "const sel = selArg || '" + SELECTOR_INTERACTIVE + "';\n" +
+            "const cap = capArg || 200;\n" +
+            "const scopes = scopesOf(traverse);\n" +
+            "const scopeOf = new Map();\n" +   // element -> scope, only for elements outside the top document
+            "const interactiveEls = [];\n" +
+            "for(const s of scopes){\n" +
+            "  for(const e of s.root.querySelectorAll(sel)){\n" +
+            "    if(!isVisible(e)) continue;\n" +
+            "    interactiveEls.push(e);\n" +
+            "    if(s.path.length) scopeOf.set(e, s);\n" +
+            "  }\n" +
+            "}\n" +
+            "const interactiveSet = new Set(interactiveEls);\n" +
+            // text-bearing leaves with direct text; cheap checks first, layout last, stop once the cap is full
+            "const textEls = [];\n" +
+            "if(interactiveEls.length < cap){\n" +
+            "  scan: for(const s of scopes){\n" +
+            "    for(const e of s.root.querySelectorAll('div,span,p,h1,h2,h3,h4,h5,h6,li,td,th,label')){\n" +
+            "      if(e.children.length > 0 || interactiveSet.has(e)) continue;\n" +
+            "      const parts = [];\n" +
+            "      for(const n of e.childNodes){ if(n.nodeType===3) parts.push(n.textContent.trim()); }\n" +
+            "      const directText = parts.join(' ').trim();\n" +
+            "      if(directText.length < 2 || directText.length > 80) continue;\n" +
+            "      if(!isVisible(e)) continue;\n" +
+            "      textEls.push(e);\n" +
+            "      if(s.path.length) scopeOf.set(e, s);\n" +
+            "      if(interactiveEls.length + textEls.length >= cap) break scan;\n" +
+            "    }\n" +
+            "  }\n" +
+            "}\n" +
+            "const els = interactiveEls.concat(textEls).slice(0, cap);\n" +
+            "const tiered = tagTier(els, filter);\n" +
+            "lastScanned = els.length; lastTier = tiered.tier;\n" +
+
+            // ── FEATURES (survivors only; no layout reads left except cached ones) ──
+            "const out = new Array(tiered.keep.length);\n" +
+            "for(let k=0;k<tiered.keep.length;k++){\n" +
+            "  const i = tiered.keep[k];\n" +
+            "  const e = els[i]; const l = readLayout(e); const p = e.parentElement; const s = scopeOf.get(e);\n" +
+            "  const id = safeStr(e.id), name = attr(e,'name'), ph = attr(e,'placeholder'), aria = attr(e,'aria-label');\n" +
+            "  const dt = attr(e,'data-testid')||attr(e,'data-test')||attr(e,'data-qa');\n" +
+            // the MutationObserver only watches the top document — scoped elements are always recomputed
+            "  const reuse = incremental && !s;\n" +
+            "  let f = reuse ? cachedFeatures(e) : null;\n" +
+            "  if(f){ lastReused++; }\n" +
+            "  else {\n" +
+            "    const lbl = labelText(e);\n" +
+            "    const pInner = p ? rawInner(p) : '';\n" +
+            "    let nearby = p ? safeStr(pInner||p.textContent||'') : '';\n" +
+            "    if(nearby.length>120) nearby = nearby.substring(0,120);\n" +
+            "    f = {\n" +
+            "      text:          [cleanInnerText(e), lbl, ph, aria, name, id, dt, childImgFilename(e)].filter(Boolean).join(' ').trim(),\n" +
+            "      labelText:     lbl,\n" +
+            "      parentText:    safeStr(pInner).substring(0,200),\n" +
+            "      siblingBefore: siblingText(e,'before'),\n" +
+            "      siblingAfter:  siblingText(e,'after'),\n" +
+            "      nearbyText:    nearby\n" +
+            "    };\n" +
+            "    if(reuse) featCache.set(e, f);\n" +
+            "  }\n" +
+            "  out[k] = {\n" +
+            "    xpath:          s ? scopedXPath(e, s.path.length) : stableXPath(e),\n" +
+            "    scopePath:      s ? s.path : [],\n" +
+            "    text:           f.text,\n" +
+            "    tag:            (e.tagName||'').toLowerCase(),\n" +
+            "    idx:            i,\n" +
+            "    id:             id,\n" +
+            "    name:           name,\n" +
+            "    className:      safeStr(e.className),\n" +
+            "    placeholder:    ph,\n" +
+            "    ariaLabel:      aria,\n" +
+            "    type:           attr(e,'type'),\n" +
+            "    value:          safeStr(e.value),\n" +
+            "    dataTestId:     dt,\n" +
+            "    role:           attr(e,'role'),\n" +
+            "    title:          attr(e,'title'),\n" +
+            "    labelText:      f.labelText,\n" +
+            "    parentText:     f.parentText,\n" +
+            "    headingContext: headingContext(e),\n" +
+            "    ancestorChain:  ancestorChain(e),\n" +
+            "    domDepth:       domDepth(e),\n" +
+            "    siblingBefore:  f.siblingBefore,\n" +
+            "    siblingAfter:   f.siblingAfter,\n" +
+            "    nearbyText:     f.nearbyText,\n" +
+            "    isVisible:      l.vis,\n" +
+            "    isEnabled:      !e.disabled,\n" +
+            "    bboxX:          (l.x||0) + (s ? s.dx : 0),\n" +
+            "    bboxY:          (l.y||0) + (s ? s.dy : 0),\n" +
+            "    bboxW:          l.w||0,\n" +
+            "    bboxH:          l.h||0\n" +
+            "  };\n" +
+            "}\n" +
+            "return out;\n" +
+            "}\n" +
+            "function extract(selArg, capArg, incremental, traverse, filter){\n" +
+            "  const items = collect(selArg, capArg, !!incremental, !!traverse, filter);\n" +
+            "  if(!incremental && !lastTier) return items;\n" +
+            "  return {items: items, reused: lastReused, scanned: lastScanned, tier: lastTier};\n" +
+            "}\n";
+
+    // Bumped automatically whenever the library text changes, so an old install is replaced
+    private static final String LIB_VERSION = Integer.toHexString(OPTIMIZED_LIB.hashCode());
+
+    // Whole library in one call (install disabled)
+    private static final String OPTIMIZED_JS =
+            OPTIMIZED_LIB + "return extract(arguments[0], arguments[1], false, arguments[2], arguments[3]);";
+
+    // Installs the library as window.__fypHeal and runs it once. A navigation gives a fresh window,
+    // which drops the namespace — INVOKE_JS then returns null and we install again.
+    private static final String INSTALL_AND_INVOKE_JS =
+            "window.__fypHeal = (function(){\n" + OPTIMIZED_LIB +
+            "persistent = true;\n" +
+            "return {v: arguments[0], extract: extract};\n" +
+            "})(arguments[2]);\n" +
+            "return window.__fypHeal.extract(arguments[0], arguments[1], arguments[3], arguments[4], arguments[5]);";
+
+    // Per-heal wire payload once installed: a few dozen bytes instead of ~8KB
+    private static final String INVOKE_JS =
+            "const h = window.__fypHeal;\n" +
+            "if(!h || h.v !== arguments[2]) return null;\n" +
+            "return h.extract(arguments[0], arguments[1], arguments[3], arguments[4], arguments[5]);";
+
+    // LEGACY = original per-element script; OPTIMIZED = batched layout reads + memoised text/heading lookups
+    public enum Mode { LEGACY, OPTIMIZED }
+
+    // Expected tag and its tag group, applied in the page with the same tiers as
+    // SelfHealingEngine.filterByTagGroup — dropped elements are never featurised or serialised.
+    public static final class TagFilter {
+        public final String tag;
+        public final List<String> group;
+
+        public TagFilter(String tag, List<String> group) {
+            this.tag = tag == null ? "" : tag.toLowerCase();
+            this.group = group == null ? List.of() : List.copyOf(group);
+        }
+
+        private Map<String, Object> toArgument() {
+            return Map.of("tag", tag, "group", group);
+        }
+    }
+
+    private final Mode mode;
+    // OPTIMIZED mode only: keep the library in window.__fypHeal and send just a short invocation per heal
+    private boolean installLibrary = true;
+    // installed library only: keep a MutationObserver-backed feature index in the page between heals
+    private boolean incremental = false;
+    // OPTIMIZED mode only: also collect from open shadow roots and same-origin iframes (same browser call)
+    private boolean traverseScopes = true;
+
     // Constructor to initialize WebDriver
     public CandidateExtractor(WebDriver driver) {
+        this(driver, Mode.OPTIMIZED);
+    }
+
+    public CandidateExtractor(WebDriver driver, Mode mode) {
         this.driver = driver;
+        this.mode = mode == null ? Mode.OPTIMIZED : mode;
+    }
+
+    public CandidateExtractor setInstallLibrary(boolean installLibrary) {
+        this.installLibrary = installLibrary;
+        return this;
+    }
+
+    public CandidateExtractor setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    public CandidateExtractor setTraverseScopes(boolean traverseScopes) {
+        this.traverseScopes = traverseScopes;
+        return this;
     }
 
     public List<HealDTO.Candidate> extract(int maxCandidates) {
         return extract(maxCandidates, "");
     }
 
-    @SuppressWarnings("unchecked")
     public List<HealDTO.Candidate> extract(int maxCandidates, String cssSelector) {
+        return extract(maxCandidates, cssSelector, mode);
+    }
+
+    // OPTIMIZED mode only; LEGACY returns everything and leaves the filtering to the caller.
+    public List<HealDTO.Candidate> extract(int maxCandidates, String cssSelector, TagFilter filter) {
+        return extract(maxCandidates, cssSelector, mode, filter);
+    }
+
+    public List<HealDTO.Candidate> extract(int maxCandidates, String cssSelector, Mode mode) {
+        return extract(maxCandidates, cssSelector, mode, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<HealDTO.Candidate> extract(int maxCandidates, String cssSelector, Mode mode, TagFilter filter) {
+        long start = System.currentTimeMillis();
+        // empty object = no filter (the page sees a falsy filter.tag)
+        Map<String, Object> filterArg = filter == null ? Map.of() : filter.toArgument();
+        JavascriptExecutor jsExec = (JavascriptExecutor) driver;
+        Object rawObj;
+        if (mode == Mode.LEGACY) {
+            // This returns a raw list of elements with their extracted data
+            rawObj = jsExec.executeScript(legacyScript(), cssSelector, maxCandidates);
+        } else if (!installLibrary) {
+            rawObj = jsExec.executeScript(OPTIMIZED_JS, cssSelector, maxCandidates, traverseScopes, filterArg);
+        } else {
+            rawObj = jsExec.executeScript(INVOKE_JS, cssSelector, maxCandidates, LIB_VERSION, incremental, traverseScopes, filterArg);
+            if (rawObj == null) {
+                // first heal on this document (or after navigation) — install, then it's invoke-only
+                logger.info("EXTRACT: installing extraction library version={}", LIB_VERSION);
+                rawObj = jsExec.executeScript(INSTALL_AND_INVOKE_JS, cssSelector, maxCandidates, LIB_VERSION, incremental,
+                        traverseScopes, filterArg);
+            }
+        }
+        String reused = "-";
+        String scanned = "-";
+        String tier = "-";
+        if (rawObj instanceof Map) {
+            // incremental / filtered result: {items: [...], reused: n, scanned: n, tier: 0-3}
+            Map<String, Object> m = (Map<String, Object>) rawObj;
+            if (incremental) reused = String.valueOf(m.get("reused"));
+            scanned = String.valueOf(m.get("scanned"));
+            tier = String.valueOf(m.get("tier"));
+            rawObj = m.get("items");
+        }
+        List<HealDTO.Candidate> out = toCandidates((List<Map<String, Object>>) rawObj);
+        logger.info("EXTRACT: mode={} candidates={} scanned={} tagTier={} reused={} elapsedMs={}",
+                mode, out.size(), scanned, tier, reused, System.currentTimeMillis() - start);
+        return out;
+    }
+
+    // Runs both modes `runs` times on the current page and returns the average ms per mode (before/after timing).
+    public Map<Mode, Double> compareModes(int maxCandidates, int runs) {
+        Map<Mode, Double> avg = new java.util.EnumMap<>(Mode.class);
+        for (Mode m : Mode.values()) {
+            extract(maxCandidates, "", m); // warm-up (JIT + style cache)
+            long total = 0;
+            for (int i = 0; i < runs; i++) {
+                long t0 = System.nanoTime();
+                extract(maxCandidates, "", m);
+                total += System.nanoTime() - t0;
+            }
+            avg.put(m, total / 1_000_000.0 / Math.max(1, runs));
+        }
+        logger.info("EXTRACT: timing per mode (avg of {} runs, cap={}) = {}", runs, maxCandidates, avg);
+        return avg;
+    }
+
+    // Original script, kept for comparison and as a fallback
+    private static String legacyScript() {
         // JavaScript that runs inside the browser to extract elements
         String js =
                 "function safeStr(v){ return (v==null? '': (''+v)).trim(); }\n" +
@@ -91,20 +647,7 @@ public class CandidateExtractor {
                         "  } catch(ex){ return safeStr(e.innerText||e.value||''); }\n" +
                         "}\n" +
 
-                        // Handles icon-only elements (extracts image info)
-                        "function childImgFilename(e){\n" +
-                        "  try {\n" +
-                        "    if(!e.querySelector) return '';\n" +
-                        "    const img = e.querySelector('img');\n" +
-                        "    if(!img) return '';\n" +
-                        "    const src = attr(img,'src') || attr(img,'data-src') || '';\n" +
-                        "    const alt = attr(img,'alt');\n" +
-                        // prefer alt text, fall back to filename without extension
-                        "    if(alt) return alt;\n" +
-                        "    const filename = src.split('/').pop().split('?')[0];\n" +
-                        "    return filename.replace(/\\.[a-z]{2,4}$/i,'');\n" +
-                        "  } catch(ex){ return ''; }\n" +
-                        "}\n" +
+                        SHARED_JS +
 
                         // Finds the nearest heading (h1–h6) related to the element
                         "function headingContext(e){\n" +
@@ -121,29 +664,6 @@ public class CandidateExtractor {
                         "  } catch(ex){ return ''; }\n" +
                         "}\n" +
 
-                        // Builds a short path of parent elements (like a simplified CSS path)
-                        "function ancestorChain(e){\n" +
-                        "  try {\n" +
-                        "    var parts=[]; var cur=e.parentElement; var d=0;\n" +
-                        "    while(cur && d<5){\n" +
-                        "      var t=(cur.tagName||'').toLowerCase();\n" +
-                        "      var cls=safeStr(cur.className).split(' ')[0];\n" +
-                        "      parts.push(cls?t+'.'+cls:t);\n" +
-                        "      cur=cur.parentElement; d++;\n" +
-                        "    }\n" +
-                        "    return parts.join(' > ');\n" +
-                        "  } catch(ex){ return ''; }\n" +
-                        "}\n" +
-
-                        // Calculates how deep element is in DOM
-                        "function domDepth(e){\n" +
-                        "  try{\n" +
-                        "    var d=0; var cur=e.parentElement;\n" +
-                        "    while(cur&&cur.nodeType===1){d++;cur=cur.parentElement;}\n" +
-                        "    return d;\n" +
-                        "  }catch(ex){return 0;}\n" +
-                        "}\n" +
-
                         // Gets text from nearby sibling elements (before or after the element)
                         "function siblingText(e,direction){\n" +
                         "  try{\n" +
@@ -169,45 +689,6 @@ public class CandidateExtractor {
                         "  }catch(ex){return '';}\n" +
                         "}\n" +
 
-                        // Safely converts a string into a valid XPath literal
-                        "function xpathLiteral(s){\n" +
-                        "  s=safeStr(s);\n" +
-                        "  if(s.indexOf(\"'\")===-1) return \"'\"+s+\"'\";\n" +
-                        "  if(s.indexOf('\"')===-1) return '\"'+s+'\"';\n" +
-                        "  const parts=s.split(\"'\"); const out=[];\n" +
-                        "  for(let i=0;i<parts.length;i++){if(parts[i].length)out.push(\"'\"+parts[i]+\"'\");if(i!==parts.length-1)out.push('\"\\\\\\''+'\"');}\n" +
-                        "  return 'concat('+out.join(',')+')';\n" +
-                        "}\n" +
-
-                        // ── stableXPath ───────────────────────────────────────────────────
-                        // Priority: id > dataTestId > name > placeholder > aria-label > href > positional
-                        "function stableXPath(e){\n" +
-                        "  const tag=(e.tagName||'').toLowerCase();\n" +
-                        "  const id=safeStr(e.id);\n" +
-                        "  if(id) return '//*[@id='+xpathLiteral(id)+']';\n" +
-                        "  const dt=attr(e,'data-testid')||attr(e,'data-test')||attr(e,'data-qa');\n" +
-                        "  if(dt) return '//*[(@data-testid='+xpathLiteral(dt)+' or @data-test='+xpathLiteral(dt)+' or @data-qa='+xpathLiteral(dt)+')]';\n" +
-                        "  const nm=attr(e,'name');\n" +
-                        "  if(nm) return '//'+tag+'[@name='+xpathLiteral(nm)+']';\n" +
-                        "  const ph=attr(e,'placeholder');\n" +
-                        "  if(ph) return '//'+tag+'[@placeholder='+xpathLiteral(ph)+']';\n" +
-                        "  const al=attr(e,'aria-label');\n" +
-                        "  if(al) return '//'+tag+'[@aria-label='+xpathLiteral(al)+']';\n" +
-                        // href fallback for links — gives cleaner xpath than positional
-                        "  const href=attr(e,'href');\n" +
-                        "  if(href && href!=='#' && !href.startsWith('javascript') && href.length<150)\n" +
-                        "    return '//'+tag+'[@href='+xpathLiteral(href)+']';\n" +
-                        // positional fallback — last resort
-                        "  const parts=[]; let el=e;\n" +
-                        "  while(el&&el.nodeType===1){\n" +
-                        "    let ix=1; let sib=el.previousSibling;\n" +
-                        "    while(sib){if(sib.nodeType===1&&sib.tagName===el.tagName)ix++;sib=sib.previousSibling;}\n" +
-                        "    parts.unshift(el.tagName.toLowerCase()+'['+ix+']');\n" +
-                        "    el=el.parentNode;\n" +
-                        "  }\n" +
-                        "  return '//'+parts.join('/');\n" +
-                        "}\n" +
-
                         // ── COLLECT CANDIDATES ────────────────────────────────────────────
                         // arguments[0] = cssSelector (empty string = use default)
                         // arguments[1] = maxCandidates cap
@@ -284,11 +765,13 @@ public class CandidateExtractor {
                         "  bboxW:          (e.getBoundingClientRect()||{}).width||0,\n" +
                         "  bboxH:          (e.getBoundingClientRect()||{}).height||0\n" +
                         "}));";
-        // This returns a raw list of elements with their extracted data
-        Object rawObj = ((JavascriptExecutor) driver).executeScript(js, cssSelector, maxCandidates);
-        List<Map<String, Object>> raw = (List<Map<String, Object>>) rawObj;
+        return js;
+    }
 
+    // package-private for the JMH benchmarks
+    static List<HealDTO.Candidate> toCandidates(List<Map<String, Object>> raw) {
         List<HealDTO.Candidate> out = new ArrayList<>();
+        if (raw == null) return out;
         // Loop through each extracted element
         for (Map<String, Object> r : raw) {
             // Basic element details
@@ -327,14 +810,19 @@ public class CandidateExtractor {
 
             if (xpath != null && !xpath.isBlank()) {
                 // Create a Candidate object with all extracted features
-                out.add(new HealDTO.Candidate(
+                HealDTO.Candidate c = new HealDTO.Candidate(
                         xpath, text, tag, idx, aria,
                         id, name, className, placeholder, type, value, dataTestId,
                         role, title, labelTxt, parentText, headingCtx, ancestorCh,
                         domDepthVal, sibBefore, sibAfter, nearby,
                         visibleVal, enabledVal,
                         bboxX, bboxY, bboxW, bboxH
-                ));
+                );
+                // iframe / shadow-host path for candidates outside the top document
+                if (r.get("scopePath") instanceof List) {
+                    for (Object step : (List<?>) r.get("scopePath")) c.scopePath.add(String.valueOf(step));
+                }
+                out.add(c);
             }
         }
         return out;
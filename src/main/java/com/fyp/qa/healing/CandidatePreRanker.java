@@ -0,0 +1,110 @@
+package com.fyp.qa.healing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Cheap Java-side scoring run before the healer API call, so only the top-K plausible
+// candidates (not all 200 with their long context strings) go over the wire.
+// It is a coarse filter only — the API still makes the real ranking decision.
+final class CandidatePreRanker {
+
+    private CandidatePreRanker() {}
+
+    // Top-k candidates by local score, returned in their original DOM order (the API uses idx distance).
+    static List<HealDTO.Candidate> topK(HealDTO.OldElement old, List<HealDTO.Candidate> candidates, int k) {
+        if (candidates == null || k <= 0 || candidates.size() <= k) return candidates;
+
+        // candidate token sets come from the shared text index; the old element's are computed once
+        CandidateTextIndex index = CandidateTextIndex.of(candidates);
+        Set<String> oldAttrTokens = oldAttrTokens(old);
+        Set<String> oldTextTokens = tokens(old.text);
+        List<double[]> scored = new ArrayList<>(candidates.size());   // [score, position]
+        for (int i = 0; i < candidates.size(); i++) {
+            scored.add(new double[] { score(old, candidates.get(i), oldAttrTokens, oldTextTokens,
+                    index.attrTokens(i), index.textTokens(i)), i });
+        }
+        // highest score first; ties keep DOM order
+        scored.sort(Comparator.<double[]>comparingDouble(a -> -a[0]).thenComparingDouble(a -> a[1]));
+
+        List<Integer> keep = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) keep.add((int) scored.get(i)[1]);
+        keep.sort(Integer::compare);
+
+        List<HealDTO.Candidate> out = new ArrayList<>(k);
+        for (int pos : keep) out.add(candidates.get(pos));
+        return out;
+    }
+
+    static double score(HealDTO.OldElement old, HealDTO.Candidate c) {
+        return score(old, c, oldAttrTokens(old), tokens(old.text),
+                tokens(c.id + " " + c.dataTestId + " " + c.name + " " + c.placeholder + " " + c.ariaLabel + " " + c.labelText),
+                tokens(c.text + " " + c.labelText));
+    }
+
+    private static Set<String> oldAttrTokens(HealDTO.OldElement old) {
+        return tokens(old.id + " " + old.dataTestId + " " + old.name + " " + old.placeholder + " " + old.ariaLabel);
+    }
+
+    private static double score(HealDTO.OldElement old, HealDTO.Candidate c, Set<String> oldAttrTokens,
+                                Set<String> oldTextTokens, Set<String> candAttrTokens, Set<String> candText) {
+        double s = 0.0;
+
+        // exact attribute matches — strongest signal
+        s += 3.0 * eq(old.id, c.id);
+        s += 3.0 * eq(old.dataTestId, c.dataTestId);
+        s += 2.0 * eq(old.name, c.name);
+        s += 2.0 * eq(old.placeholder, c.placeholder);
+        s += 2.0 * eq(old.ariaLabel, c.ariaLabel);
+        s += 1.0 * eq(old.type, c.type);
+        s += 0.5 * eq(old.role, c.role);
+        s += 0.5 * eq(old.tag, c.tag);
+
+        // partial overlap: old attribute values vs candidate attributes (renamed ids, suffixes etc.)
+        s += 2.0 * jaccard(oldAttrTokens, candAttrTokens);
+
+        // text hint (already intent-enriched) vs visible text + label
+        s += 2.0 * jaccard(oldTextTokens, candText);
+
+        // canonical intent token anywhere in the candidate
+        String intent = old.intent == null ? "" : old.intent.trim().toLowerCase();
+        if (!intent.isEmpty() && (candText.contains(intent) || candAttrTokens.contains(intent))) s += 1.5;
+
+        // hidden / disabled elements are rarely the target
+        if (!c.isVisible) s -= 1.0;
+        if (!c.isEnabled) s -= 0.5;
+        return s;
+    }
+
+    private static double eq(String a, String b) {
+        if (a == null || b == null) return 0.0;
+        String x = a.trim();
+        return !x.isEmpty() && x.equalsIgnoreCase(b.trim()) ? 1.0 : 0.0;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) return 0.0;
+        int inter = 0;
+        for (String t : a) if (b.contains(t)) inter++;
+        return (double) inter / (a.size() + b.size() - inter);
+    }
+
+    // lowercase alphanumeric tokens of length >= 2
+    static Set<String> tokens(String s) {
+        Set<String> out = new HashSet<>();
+        if (s == null) return out;
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            char ch = i < s.length() ? Character.toLowerCase(s.charAt(i)) : ' ';
+            boolean alnum = (ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9');
+            if (alnum && start < 0) start = i;
+            else if (!alnum && start >= 0) {
+                if (i - start >= 2) out.add(s.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,230 @@
+package com.fyp.qa.healing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Normalised text of one candidate list, computed once and shared by the text rewrite, the intent
+// checks and the pre-ranker (each of them used to re-normalise every candidate on every call).
+// Sections are built lazily on first use; of() hands out the same index for the same list instance.
+final class CandidateTextIndex {
+
+    private static final int ALPHABET = 37;   // a-z, 0-9, space — everything TextSimilarity.norm keeps
+
+    private final List<HealDTO.Candidate> candidates;
+    private final int size;
+
+    // text rewrite: cleaned visible text, its norm, char histogram and trigram postings
+    private String[] rewriteText;
+    private String[] rewriteNorm;
+    private int[][] histogram;
+    private Map<Integer, int[]> trigrams;
+
+    // intent checks: normalised text/attribute/xpath blob and its tokens
+    private String[] intentBlob;
+    private List<Set<String>> intentTokens;
+
+    // pre-ranker: attribute tokens and text tokens (CandidatePreRanker.tokens)
+    private List<Set<String>> attrTokens;
+    private List<Set<String>> textTokens;
+
+    private CandidateTextIndex(List<HealDTO.Candidate> candidates) {
+        this.candidates = candidates;
+        this.size = candidates.size();
+    }
+
+    // last few indexes by list identity — the same pool goes through rewrite, intent and pre-rank
+    private static final CandidateTextIndex[] RECENT = new CandidateTextIndex[8];
+    private static int nextSlot;
+
+    static CandidateTextIndex of(List<HealDTO.Candidate> candidates) {
+        List<HealDTO.Candidate> list = candidates == null ? List.of() : candidates;
+        synchronized (RECENT) {
+            for (CandidateTextIndex idx : RECENT) {
+                if (idx != null && idx.candidates == list && idx.size == list.size()) return idx;
+            }
+            CandidateTextIndex idx = new CandidateTextIndex(list);
+            RECENT[nextSlot] = idx;
+            nextSlot = (nextSlot + 1) % RECENT.length;
+            return idx;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // ── text rewrite ──────────────────────────────────────────────────────────
+
+    // Visible text with trailing id / data-testid echoes removed (what the rewritten XPath matches on).
+    String rewriteText(int i) {
+        ensureRewrite();
+        return rewriteText[i];
+    }
+
+    // Candidate with the highest seqSim(normOld, norm(text)) strictly above minSim — the first one in DOM
+    // order on ties, exactly like a linear scan — or -1. Candidates sharing trigrams with the query are
+    // scored first; the rest are skipped whenever their character-count bound can't beat the best so far.
+    int bestTextMatch(String normOld, double minSim) {
+        ensureRewrite();
+        int la = normOld.length();
+        if (la == 0 || size == 0) return -1;
+
+        int[] q = histogramOf(normOld);
+        int[] shared = new int[size];
+        java.util.Set<Integer> seen = new java.util.HashSet<>();
+        for (int p = 0; p + 3 <= la; p++) {
+            int key = trigram(normOld, p);
+            if (!seen.add(key)) continue;
+            int[] postings = trigrams.get(key);
+            if (postings == null) continue;
+            for (int i : postings) shared[i]++;
+        }
+        List<Integer> order = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) if (shared[i] > 0) order.add(i);
+        order.sort((x, y) -> shared[y] != shared[x] ? Integer.compare(shared[y], shared[x]) : Integer.compare(x, y));
+        for (int i = 0; i < size; i++) if (shared[i] == 0) order.add(i);
+
+        int best = -1;
+        double bestSim = minSim;
+        for (int i : order) {
+            String t = rewriteNorm[i];
+            int lb = t.length();
+            if (lb == 0) continue;
+            int common = 0;
+            int[] h = histogram[i];
+            for (int c = 0; c < ALPHABET; c++) common += Math.min(q[c], h[c]);
+            double bound = 2.0 * common / (la + lb);   // LCS can't exceed the shared character counts
+            if (bound < bestSim || (bound == bestSim && (best < 0 || i > best))) continue;
+            double sim = 2.0 * TextSimilarity.lcs(normOld, t) / (la + lb);
+            if (sim > bestSim || (best >= 0 && sim == bestSim && i < best)) {
+                bestSim = sim;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private synchronized void ensureRewrite() {
+        if (rewriteNorm != null) return;
+        String[] text = new String[size];
+        String[] norm = new String[size];
+        int[][] hist = new int[size][];
+        Map<Integer, List<Integer>> post = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            HealDTO.Candidate c = candidates.get(i);
+            text[i] = cleanText(c.text, c.id, c.dataTestId);
+            norm[i] = text[i].isEmpty() ? "" : TextSimilarity.norm(text[i]);
+            hist[i] = histogramOf(norm[i]);
+            for (int p = 0; p + 3 <= norm[i].length(); p++) {
+                int key = trigram(norm[i], p);
+                List<Integer> l = post.computeIfAbsent(key, k -> new ArrayList<>());
+                if (l.isEmpty() || l.get(l.size() - 1) != i) l.add(i);
+            }
+        }
+        Map<Integer, int[]> tri = new HashMap<>(post.size() * 2);
+        for (Map.Entry<Integer, List<Integer>> e : post.entrySet()) {
+            int[] a = new int[e.getValue().size()];
+            for (int k = 0; k < a.length; k++) a[k] = e.getValue().get(k);
+            tri.put(e.getKey(), a);
+        }
+        rewriteText = text;
+        histogram = hist;
+        trigrams = tri;
+        rewriteNorm = norm;
+    }
+
+    // Strips trailing copies of the element's own id / data-testid from its visible text.
+    static String cleanText(String rawText, String id, String dataTestId) {
+        String text = rawText == null ? "" : rawText.trim();
+        List<String> suffixes = new ArrayList<>(2);
+        if (id != null && !id.trim().isEmpty())                 suffixes.add(id.trim());
+        if (dataTestId != null && !dataTestId.trim().isEmpty()) suffixes.add(dataTestId.trim());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (String suffix : suffixes) {
+                if (!suffix.isEmpty() && text.endsWith(" " + suffix)) {
+                    text = text.substring(0, text.length() - suffix.length() - 1).trim();
+                    changed = true;
+                }
+            }
+        }
+        return text;
+    }
+
+    private static int[] histogramOf(String norm) {
+        int[] h = new int[ALPHABET];
+        for (int i = 0; i < norm.length(); i++) {
+            char ch = norm.charAt(i);
+            int slot = ch >= 'a' && ch <= 'z' ? ch - 'a' : ch >= '0' && ch <= '9' ? 26 + ch - '0' : 36;
+            h[slot]++;
+        }
+        return h;
+    }
+
+    private static int trigram(String s, int p) {
+        return (s.charAt(p) << 16) | (s.charAt(p + 1) << 8) | s.charAt(p + 2);
+    }
+
+    // ── intent checks ─────────────────────────────────────────────────────────
+
+    // norm() of text + aria-label + placeholder + name + id + data-testid + xpath
+    String intentBlob(int i) {
+        ensureIntent();
+        return intentBlob[i];
+    }
+
+    Set<String> intentTokens(int i) {
+        ensureIntent();
+        return intentTokens.get(i);
+    }
+
+    private synchronized void ensureIntent() {
+        if (intentTokens != null) return;
+        String[] blob = new String[size];
+        List<Set<String>> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            HealDTO.Candidate c = candidates.get(i);
+            blob[i] = TextSimilarity.norm(
+                    trim(c.text) + " " + trim(c.ariaLabel) + " " + trim(c.placeholder) + " " + trim(c.name) + " "
+                            + trim(c.id) + " " + trim(c.dataTestId) + " " + trim(c.xpath));
+            tokens.add(TextSimilarity.tokenSet(blob[i]));
+        }
+        intentBlob = blob;
+        intentTokens = tokens;
+    }
+
+    // ── pre-ranker ────────────────────────────────────────────────────────────
+
+    // CandidatePreRanker.tokens of id, data-testid, name, placeholder, aria-label, label text
+    Set<String> attrTokens(int i) {
+        ensureRank();
+        return attrTokens.get(i);
+    }
+
+    // CandidatePreRanker.tokens of text + label text
+    Set<String> textTokens(int i) {
+        ensureRank();
+        return textTokens.get(i);
+    }
+
+    private synchronized void ensureRank() {
+        if (textTokens != null) return;
+        List<Set<String>> attr = new ArrayList<>(size);
+        List<Set<String>> text = new ArrayList<>(size);
+        for (HealDTO.Candidate c : candidates) {
+            attr.add(CandidatePreRanker.tokens(c.id + " " + c.dataTestId + " " + c.name + " "
+                    + c.placeholder + " " + c.ariaLabel + " " + c.labelText));
+            text.add(CandidatePreRanker.tokens(c.text + " " + c.labelText));
+        }
+        attrTokens = attr;
+        textTokens = text;
+    }
+
+    private static String trim(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
@@ -0,0 +1,129 @@
+package com.fyp.qa.healing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Stops calling the healer service after `failureThreshold` failed calls in a row.
+// While OPEN every call fails fast (the caller falls back to local strategies); after `openMs`
+// one HALF_OPEN probe is let through — success closes the breaker, failure opens it again.
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    // counters for monitoring — read via snapshot()
+    private long successes;
+    private long failures;
+    private long rejected;
+    private long opened;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMs) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = Math.max(0, openMs);
+    }
+
+    // one breaker per service URL and settings for the whole run, so a new engine/page object doesn't reset
+    // it — and a config with its own threshold / open period gets its own breaker instead of the first one's
+    private static final java.util.Map<String, CircuitBreaker> SHARED = new java.util.concurrent.ConcurrentHashMap<>();
+
+    public static CircuitBreaker forName(String name, int failureThreshold, long openMs) {
+        String key = name + "|" + Math.max(1, failureThreshold) + "|" + Math.max(0, openMs);
+        return SHARED.computeIfAbsent(key, k -> new CircuitBreaker(name, failureThreshold, openMs));
+    }
+
+    public static CircuitBreaker fromConfig(String name, HealingConfig config) {
+        return forName(name, config.breakerFailureThreshold, config.breakerOpenMs);
+    }
+
+    // state + counters of every shared breaker, for monitoring / end-of-run reporting
+    public static java.util.List<Snapshot> snapshots() {
+        java.util.List<Snapshot> out = new java.util.ArrayList<>();
+        for (CircuitBreaker b : SHARED.values()) out.add(b.snapshot());
+        return out;
+    }
+
+    // false = fail fast without calling the service
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) return true;
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        successes++;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) transition(State.CLOSED);
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAt = System.currentTimeMillis();
+            opened++;
+            transition(State.OPEN);
+        }
+    }
+
+    // caller gave up on an acquired call without an outcome (e.g. cancelled because a local strategy won)
+    public synchronized void onIgnored() {
+        probeInFlight = false;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Snapshot snapshot() {
+        Snapshot s = new Snapshot();
+        s.name = name;
+        s.state = state;
+        s.consecutiveFailures = consecutiveFailures;
+        s.successes = successes;
+        s.failures = failures;
+        s.rejected = rejected;
+        s.opened = opened;
+        return s;
+    }
+
+    private void transition(State next) {
+        logger.warn("CIRCUIT[{}]: {} -> {} (consecutiveFailures={})", name, state, next, consecutiveFailures);
+        state = next;
+    }
+
+    public static class Snapshot {
+        public String name;
+        public State state;
+        public int consecutiveFailures;
+        public long successes;
+        public long failures;
+        public long rejected;
+        public long opened;
+
+        @Override
+        public String toString() {
+            return name + " state=" + state + " consecutiveFailures=" + consecutiveFailures + " successes=" + successes
+                    + " failures=" + failures + " rejected=" + rejected + " opened=" + opened;
+        }
+    }
+}
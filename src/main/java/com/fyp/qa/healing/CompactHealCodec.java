@@ -0,0 +1,188 @@
+package com.fyp.qa.healing;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Dictionary-coded HealRequest in Smile (binary JSON): every candidate string is sent once in a
+// per-request string table and candidates become arrays of table indices plus their numeric fields.
+// Siblings share className / ancestorChain / headingContext / parentText, and text often repeats
+// id/name/placeholder, so this removes most of the repetition in a 200-candidate payload; Smile then
+// drops the quoting/escaping and writes small ints in one byte. Smile's own shared-value references
+// only cover strings up to 64 bytes, hence the table.
+//
+// {"v":2, "old":{...plain OldElement...}, "strings":["", ...], "fields":["xpath",...],
+//  "rows":[[s0, s1, ..., idx, domDepth, isVisible, isEnabled, bboxX, bboxY, bboxW, bboxH], ...]}
+// A null string field / idx is written as null, "" as table index 0.
+final class CompactHealCodec {
+
+    static final String CONTENT_TYPE = "application/x-fyp-heal-dict+smile";
+    static final int VERSION = 2;
+
+    private static final SmileFactory SMILE = new SmileFactory();
+
+    private CompactHealCodec() {}
+
+    private static final String[] STRING_FIELDS = {
+            "xpath", "text", "tag", "ariaLabel", "id", "name", "className", "placeholder", "type", "value",
+            "dataTestId", "role", "title", "labelText", "parentText", "headingContext", "ancestorChain",
+            "siblingBefore", "siblingAfter", "nearbyText"
+    };
+
+    private static final List<Function<HealDTO.Candidate, String>> GET = List.of(
+            c -> c.xpath, c -> c.text, c -> c.tag, c -> c.ariaLabel, c -> c.id, c -> c.name, c -> c.className,
+            c -> c.placeholder, c -> c.type, c -> c.value, c -> c.dataTestId, c -> c.role, c -> c.title,
+            c -> c.labelText, c -> c.parentText, c -> c.headingContext, c -> c.ancestorChain,
+            c -> c.siblingBefore, c -> c.siblingAfter, c -> c.nearbyText);
+
+    private static final List<BiConsumer<HealDTO.Candidate, String>> SET = List.of(
+            (c, v) -> c.xpath = v, (c, v) -> c.text = v, (c, v) -> c.tag = v, (c, v) -> c.ariaLabel = v,
+            (c, v) -> c.id = v, (c, v) -> c.name = v, (c, v) -> c.className = v, (c, v) -> c.placeholder = v,
+            (c, v) -> c.type = v, (c, v) -> c.value = v, (c, v) -> c.dataTestId = v, (c, v) -> c.role = v,
+            (c, v) -> c.title = v, (c, v) -> c.labelText = v, (c, v) -> c.parentText = v,
+            (c, v) -> c.headingContext = v, (c, v) -> c.ancestorChain = v, (c, v) -> c.siblingBefore = v,
+            (c, v) -> c.siblingAfter = v, (c, v) -> c.nearbyText = v);
+
+    static void encode(ObjectMapper mapper, HealDTO.HealRequest req, OutputStream out) throws IOException {
+        try (JsonGenerator gen = SMILE.createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            encode(mapper, req, gen);
+        }
+    }
+
+    private static void encode(ObjectMapper mapper, HealDTO.HealRequest req, JsonGenerator gen) throws IOException {
+        List<HealDTO.Candidate> candidates = req.candidates == null ? List.of() : req.candidates;
+
+        // build the string table first so rows are plain int arrays; index 0 is always ""
+        Map<String, Integer> index = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        index.put("", 0);
+        strings.add("");
+        int[][] refs = new int[candidates.size()][STRING_FIELDS.length];
+        for (int i = 0; i < candidates.size(); i++) {
+            HealDTO.Candidate c = candidates.get(i);
+            for (int f = 0; f < STRING_FIELDS.length; f++) {
+                String v = GET.get(f).apply(c);
+                if (v == null) {
+                    refs[i][f] = -1;
+                    continue;
+                }
+                if (v.isEmpty()) continue;
+                Integer at = index.get(v);
+                if (at == null) {
+                    at = strings.size();
+                    index.put(v, at);
+                    strings.add(v);
+                }
+                refs[i][f] = at;
+            }
+        }
+
+        gen.writeStartObject();
+        gen.writeNumberField("v", VERSION);
+        gen.writeFieldName("old");
+        mapper.writeValue(gen, req.old);
+
+        gen.writeArrayFieldStart("strings");
+        for (String s : strings) gen.writeString(s);
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("fields");
+        for (String f : STRING_FIELDS) gen.writeString(f);
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart("rows");
+        for (int i = 0; i < candidates.size(); i++) {
+            HealDTO.Candidate c = candidates.get(i);
+            gen.writeStartArray();
+            for (int r : refs[i]) {
+                if (r < 0) gen.writeNull();
+                else gen.writeNumber(r);
+            }
+            if (c.idx == null) gen.writeNull();
+            else gen.writeNumber(c.idx);
+            gen.writeNumber(c.domDepth);
+            gen.writeNumber(c.isVisible ? 1 : 0);
+            gen.writeNumber(c.isEnabled ? 1 : 0);
+            gen.writeNumber(c.bboxX);
+            gen.writeNumber(c.bboxY);
+            gen.writeNumber(c.bboxW);
+            gen.writeNumber(c.bboxH);
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    // Reference decoder — what the healer service does with this content type. Used by local stand-ins.
+    static HealDTO.HealRequest decode(ObjectMapper mapper, InputStream in) throws IOException {
+        try (JsonParser p = SMILE.createParser(in)) {
+            return decode(mapper, p);
+        }
+    }
+
+    private static HealDTO.HealRequest decode(ObjectMapper mapper, JsonParser p) throws IOException {
+        HealDTO.HealRequest req = new HealDTO.HealRequest(null, new ArrayList<>());
+        List<String> strings = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+
+        if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("expected object");
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String key = p.currentName();
+            p.nextToken();
+            switch (key) {
+                case "v":
+                    if (p.getIntValue() != VERSION) throw new IOException("unsupported version " + p.getIntValue());
+                    break;
+                case "old":
+                    req.old = mapper.readValue(p, HealDTO.OldElement.class);
+                    break;
+                case "strings":
+                    while (p.nextToken() != JsonToken.END_ARRAY) strings.add(p.getText());
+                    break;
+                case "fields":
+                    while (p.nextToken() != JsonToken.END_ARRAY) fields.add(p.getText());
+                    break;
+                case "rows":
+                    // "strings" and "fields" are written first, so rows can be resolved as they stream in
+                    int[] setter = new int[fields.size()];
+                    for (int f = 0; f < fields.size(); f++) {
+                        setter[f] = java.util.Arrays.asList(STRING_FIELDS).indexOf(fields.get(f));
+                    }
+                    while (p.nextToken() == JsonToken.START_ARRAY) {
+                        HealDTO.Candidate c = new HealDTO.Candidate();
+                        for (int f = 0; f < fields.size(); f++) {
+                            String v = p.nextToken() == JsonToken.VALUE_NULL ? null : strings.get(p.getIntValue());
+                            if (setter[f] >= 0) SET.get(setter[f]).accept(c, v);
+                        }
+                        c.idx = p.nextToken() == JsonToken.VALUE_NULL ? null : p.getIntValue();
+                        p.nextToken(); c.domDepth = p.getDoubleValue();
+                        p.nextToken(); c.isVisible = p.getIntValue() != 0;
+                        p.nextToken(); c.isEnabled = p.getIntValue() != 0;
+                        p.nextToken(); c.bboxX = p.getDoubleValue();
+                        p.nextToken(); c.bboxY = p.getDoubleValue();
+                        p.nextToken(); c.bboxW = p.getDoubleValue();
+                        p.nextToken(); c.bboxH = p.getDoubleValue();
+                        if (p.nextToken() != JsonToken.END_ARRAY) throw new IOException("malformed candidate row");
+                        req.candidates.add(c);
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return req;
+    }
+}
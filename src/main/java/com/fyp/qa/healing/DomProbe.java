@@ -0,0 +1,185 @@
+package com.fyp.qa.healing;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Engine-internal XPath probes that never wait. findElement(s) honours the test's implicit wait
+// (30s in TestBase), so probing an XPath that matches nothing used to block for the full timeout.
+// These run as one document.evaluate in the page instead; anything that still needs a WebDriver
+// lookup (drivers without JS) goes through withoutImplicitWait().
+final class DomProbe {
+
+    private DomProbe() {}
+
+    // Root the XPath is evaluated against: the document, or — for a candidate found in a same-origin
+    // iframe / open shadow root — the frame document or shadow root at the end of arguments[1]
+    // (host XPaths from CandidateExtractor, each relative to the root before it). Frames are entered
+    // through contentDocument, so no WebDriver frame switch is needed for a probe.
+    private static final String ROOT_JS =
+            "function scopeRoot(path) {\n" +
+            "  var root = document;\n" +
+            "  for (var i = 0; path && i < path.length; i++) {\n" +
+            "    var h = (root.ownerDocument || root).evaluate(path[i], root, null, " +
+            "XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;\n" +
+            "    if (!h) return null;\n" +
+            "    root = (h.tagName === 'IFRAME' || h.tagName === 'FRAME') ? h.contentDocument : h.shadowRoot;\n" +
+            "    if (!root) return null;\n" +
+            "  }\n" +
+            "  return root;\n" +
+            "}\n" +
+            "function snapshot(xp, path) {\n" +
+            "  var root = scopeRoot(path);\n" +
+            "  if (!root) return null;\n" +
+            "  return (root.ownerDocument || root).evaluate(xp, root, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);\n" +
+            "}\n";
+
+    private static final String COUNT_JS = ROOT_JS +
+            "try { var r = snapshot(arguments[0], arguments[1]); return r ? r.snapshotLength : 0; } catch (e) { return -1; }";
+
+    // Everything verifyHeal needs about a healed XPath, in one round trip:
+    // [count, visible, enabled, clickable, blob] for the first match.
+    private static final String VERIFY_JS = ROOT_JS +
+            "var r; try { r = snapshot(arguments[0], arguments[1]); } catch (e) { return [-1, false, false, false, null]; }\n" +
+            "if (!r) return [0, false, false, false, null];\n" +
+            "var n = r.snapshotLength > 0 ? r.snapshotItem(0) : null;\n" +
+            "if (!n || n.nodeType !== 1) return [r.snapshotLength, false, false, false, null];\n" +
+            "var s = (n.ownerDocument.defaultView || window).getComputedStyle(n), b = n.getBoundingClientRect();\n" +
+            "var visible = s.display !== 'none' && s.visibility !== 'hidden' && b.width > 0 && b.height > 0;\n" +
+            "var enabled = !n.disabled && n.getAttribute('aria-disabled') !== 'true';\n" +
+            "var clickable = visible && enabled && s.pointerEvents !== 'none';\n" +
+            "var a = ['placeholder','aria-label','name','id','data-testid','data-test','data-qa'];\n" +
+            "var out = (n.innerText || n.textContent || '').trim();\n" +
+            "for (var i = 0; i < a.length; i++) out += ' ' + (n.getAttribute(a[i]) || '');\n" +
+            "return [r.snapshotLength, visible, enabled, clickable, out];";
+
+    // Result of verify(): count/uniqueness, state of the first match and its attribute blob.
+    static final class Verification {
+        final int count;
+        final boolean unique;
+        final boolean visible;
+        final boolean enabled;
+        final boolean clickable;
+        final String blob;          // lower-cased text + identifying attributes, null when nothing matched
+        final boolean positional;   // positional //html[1]/body[1]/... path — brittle, never auto-verified
+
+        Verification(int count, boolean visible, boolean enabled, boolean clickable, String blob, boolean positional) {
+            this.count = count;
+            this.unique = count == 1;
+            this.visible = visible;
+            this.enabled = enabled;
+            this.clickable = clickable;
+            this.blob = blob;
+            this.positional = positional;
+        }
+
+        boolean found() { return count > 0; }
+
+        @Override
+        public String toString() {
+            return "Verification{count=" + count + " visible=" + visible + " enabled=" + enabled
+                    + " clickable=" + clickable + " positional=" + positional + "}";
+        }
+    }
+
+    // One browser call for all post-API checks on a healed XPath (uniqueness, sanity, intent).
+    static Verification verify(WebDriver driver, String xpath) {
+        return verify(driver, java.util.List.of(), xpath);
+    }
+
+    // Same, for an XPath inside the iframe / shadow root reached through scopePath.
+    static Verification verify(WebDriver driver, java.util.List<String> scopePath, String xpath) {
+        boolean positional = isAbsolutePositional(xpath);
+        if (xpath == null || xpath.isBlank()) return new Verification(0, false, false, false, null, positional);
+        boolean scoped = scopePath != null && !scopePath.isEmpty();
+        if (!(driver instanceof JavascriptExecutor)) {
+            // the scope path can only be walked in the page
+            if (scoped) return new Verification(0, false, false, false, null, positional);
+            return withoutImplicitWait(driver, () -> {
+                java.util.List<WebElement> els = driver.findElements(By.xpath(xpath));
+                if (els.isEmpty()) return new Verification(0, false, false, false, null, positional);
+                WebElement e = els.get(0);
+                boolean shown = e.isDisplayed(), on = e.isEnabled();
+                StringBuilder blob = new StringBuilder(e.getText() == null ? "" : e.getText().trim());
+                for (String a : new String[] {"placeholder", "aria-label", "name", "id", "data-testid", "data-test", "data-qa"}) {
+                    String v = e.getAttribute(a);
+                    blob.append(' ').append(v == null ? "" : v);
+                }
+                return new Verification(els.size(), shown, on, shown && on, blob.toString().toLowerCase(), positional);
+            });
+        }
+        Object raw = run(driver, VERIFY_JS, xpath, scoped ? scopePath : java.util.List.of());
+        if (!(raw instanceof java.util.List) || ((java.util.List<?>) raw).size() < 5)
+            return new Verification(0, false, false, false, null, positional);
+        java.util.List<?> r = (java.util.List<?>) raw;
+        int count = r.get(0) instanceof Number ? Math.max(0, ((Number) r.get(0)).intValue()) : 0;
+        return new Verification(count, Boolean.TRUE.equals(r.get(1)), Boolean.TRUE.equals(r.get(2)),
+                Boolean.TRUE.equals(r.get(3)), r.get(4) == null ? null : r.get(4).toString().toLowerCase(), positional);
+    }
+
+    // Positional XPath (//html[1]/body[1]/...) — too brittle to auto-verify. Candidates from an iframe
+    // carry a leading '.', and a positional path inside a shadow root starts at the root ("./div[1]/...").
+    static boolean isAbsolutePositional(String xp) {
+        if (xp == null) return false;
+        if (xp.startsWith("./") && !xp.startsWith(".//")) return true;
+        return (xp.startsWith(".") ? xp.substring(1) : xp).startsWith("//html[1]/body[1]/");
+    }
+
+    // per-thread probe counters — a heal runs on one thread, so deltas around it are that heal's probes
+    private static final ThreadLocal<long[]> STATS = ThreadLocal.withInitial(() -> new long[2]);   // [count, nanos]
+
+    // Number of nodes matching the XPath right now; 0 for invalid XPath.
+    static int count(WebDriver driver, String xpath) {
+        return count(driver, java.util.List.of(), xpath);
+    }
+
+    // Same, inside the iframe / shadow root reached through scopePath (0 when the path no longer resolves).
+    static int count(WebDriver driver, java.util.List<String> scopePath, String xpath) {
+        if (xpath == null || xpath.isBlank()) return 0;
+        boolean scoped = scopePath != null && !scopePath.isEmpty();
+        if (!(driver instanceof JavascriptExecutor))
+            return scoped ? 0 : withoutImplicitWait(driver, () -> driver.findElements(By.xpath(xpath)).size());
+        Object n = run(driver, COUNT_JS, xpath, scoped ? scopePath : java.util.List.of());
+        return n instanceof Number ? Math.max(0, ((Number) n).intValue()) : 0;
+    }
+
+    // Runs WebDriver lookups with implicit wait 0 and restores the caller's setting afterwards.
+    static <T> T withoutImplicitWait(WebDriver driver, Supplier<T> work) {
+        Duration previous;
+        try {
+            previous = driver.manage().timeouts().getImplicitWaitTimeout();
+        } catch (Exception e) {
+            previous = null;   // driver can't report it — leave the setting alone
+        }
+        if (previous == null || previous.isZero()) return work.get();
+        driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        try {
+            return work.get();
+        } finally {
+            driver.manage().timeouts().implicitlyWait(previous);
+        }
+    }
+
+    // [probe count, probe nanos] so far on this thread
+    static long[] snapshot() {
+        long[] s = STATS.get();
+        return new long[] { s[0], s[1] };
+    }
+
+    private static Object run(WebDriver driver, String script, String xpath, java.util.List<String> scopePath) {
+        long start = System.nanoTime();
+        try {
+            return ((JavascriptExecutor) driver).executeScript(script, xpath, scopePath);
+        } catch (Exception e) {
+            return null;
+        } finally {
+            long[] s = STATS.get();
+            s[0]++;
+            s[1] += System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.fyp.qa.healing;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Persistent healed-locator cache (append-only JSON lines file).
+// Key = original xpath + url pattern + cheap DOM fingerprint. Value = the accepted heal.
+// Later lines win, so a removal is just a tombstone line appended after the entry.
+public class HealCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealCache.class);
+
+    // one instance per file so engines in the same JVM don't interleave writes
+    private static final Map<Path, HealCache> SHARED = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final ObjectMapper mapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // One line in the cache file
+    public static class Entry {
+        public String originalXpath = "";
+        public String urlPattern    = "";
+        public String fingerprint   = "";
+        public String healedXpath   = "";
+        public double confidence    = 0.0;
+        public String decision      = "";
+        public long   savedAt       = 0L;
+        public boolean removed      = false;
+        // iframe / shadow-host path of the healed element (HealResult.scopePath); empty = top document
+        public List<String> scopePath = new ArrayList<>();
+
+        public Entry() {}
+
+        public Entry(String originalXpath, String urlPattern, String fingerprint,
+                     String healedXpath, double confidence, String decision) {
+            this.originalXpath = originalXpath;
+            this.urlPattern = urlPattern;
+            this.fingerprint = fingerprint;
+            this.healedXpath = healedXpath;
+            this.confidence = confidence;
+            this.decision = decision;
+            this.savedAt = System.currentTimeMillis();
+        }
+
+        String key() {
+            return HealCache.key(originalXpath, urlPattern, fingerprint);
+        }
+    }
+
+    public HealCache(Path file) {
+        this.file = file;
+        this.mapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        load();
+    }
+
+    public static HealCache forFile(String path) {
+        Path p = Path.of(path).toAbsolutePath().normalize();
+        return SHARED.computeIfAbsent(p, HealCache::new);
+    }
+
+    public Entry lookup(String originalXpath, String urlPattern, String fingerprint) {
+        return entries.get(key(originalXpath, urlPattern, fingerprint));
+    }
+
+    public synchronized void put(String originalXpath, String urlPattern, String fingerprint,
+                                 HealResult result) {
+        if (result == null || result.healedXpath == null || result.healedXpath.isBlank()) return;
+        Entry e = new Entry(originalXpath, urlPattern, fingerprint,
+                result.healedXpath, result.confidence, result.decision);
+        if (result.scopePath != null) e.scopePath = new ArrayList<>(result.scopePath);
+        Entry prev = entries.get(e.key());
+        // skip the write if nothing changed — keeps the file from growing on every run
+        if (prev != null && prev.healedXpath.equals(e.healedXpath) && prev.scopePath.equals(e.scopePath)) return;
+        entries.put(e.key(), e);
+        append(e);
+    }
+
+    public synchronized void remove(Entry e) {
+        if (e == null || entries.remove(e.key()) == null) return;
+        Entry tomb = new Entry(e.originalXpath, e.urlPattern, e.fingerprint, e.healedXpath, 0.0, e.decision);
+        tomb.removed = true;
+        append(tomb);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void load() {
+        if (!Files.exists(file)) return;
+        int lines = 0;
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) continue;
+                lines++;
+                try {
+                    Entry e = mapper.readValue(line, Entry.class);
+                    if (e.removed) entries.remove(e.key());
+                    else entries.put(e.key(), e);
+                } catch (Exception bad) {
+                    // a half-written last line from a killed run — skip it
+                    logger.warn("HEAL_CACHE: skipping unreadable line in {}", file);
+                }
+            }
+        } catch (IOException ex) {
+            logger.warn("HEAL_CACHE: could not read {} msg={}", file, ex.toString());
+            return;
+        }
+        // rewrite the file when most of it is dead lines (tombstones / superseded entries)
+        if (lines > 64 && lines > 2 * entries.size()) compact();
+        logger.info("HEAL_CACHE: loaded {} entries from {}", entries.size(), file);
+    }
+
+    private synchronized void compact() {
+        try {
+            List<String> out = new ArrayList<>();
+            for (Entry e : entries.values()) out.add(mapper.writeValueAsString(e));
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, out, StandardCharsets.UTF_8);
+            Files.move(tmp, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            logger.warn("HEAL_CACHE: compaction failed for {} msg={}", file, ex.toString());
+        }
+    }
+
+    private void append(Entry e) {
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                w.write(mapper.writeValueAsString(e));
+                w.newLine();
+            }
+        } catch (IOException ex) {
+            // cache is an optimisation only — never fail a heal because of it
+            logger.warn("HEAL_CACHE: could not write {} msg={}", file, ex.toString());
+        }
+    }
+
+    static String key(String originalXpath, String urlPattern, String fingerprint) {
+        return originalXpath + '\u0001' + urlPattern + '\u0001' + fingerprint;
+    }
+
+    // scheme://host/path with numeric path segments collapsed; query and fragment dropped
+    public static String urlPattern(String url) {
+        if (url == null) return "";
+        String u = url;
+        int cut = u.indexOf('#');
+        if (cut >= 0) u = u.substring(0, cut);
+        cut = u.indexOf('?');
+        if (cut >= 0) u = u.substring(0, cut);
+        return u.replaceAll("/\\d+(?=/|$)", "/{n}").replaceAll("/+$", "");
+    }
+
+    // Cheap structural fingerprint: title + form-control counts + top-level body layout.
+    // Content-heavy parts (links, list items) are left out so product lists etc. don't break it.
+    public static String fingerprint(WebDriver driver) {
+        try {
+            Object raw = ((JavascriptExecutor) driver).executeScript(
+                    "var d=document; var c=function(s){return d.querySelectorAll(s).length;};\n" +
+                    "var top=d.body?Array.from(d.body.children).map(function(e){return e.tagName;}).join(','):'';\n" +
+                    "return [d.title, c('form'), c('input'), c('select'), c('textarea'), top].join('|');");
+            String s = raw == null ? "" : raw.toString();
+            return Integer.toHexString(s.hashCode());
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
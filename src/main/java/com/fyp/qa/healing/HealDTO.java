@@ -1,5 +1,8 @@
 package com.fyp.qa.healing;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
 import java.util.List;
 
 public class HealDTO {
@@ -84,6 +87,11 @@ public class HealDTO {
         public double  bboxY          = 0.0;
         public double  bboxW          = 0.0;
         public double  bboxH          = 0.0;
+        // XPaths of the iframe / shadow-host elements from the top document down to this candidate's
+        // root (empty = top document). Client-side only: the ranker answers with the xpath and the
+        // engine maps it back to this path.
+        @JsonIgnore
+        public List<String> scopePath = new ArrayList<>();
 
         public Candidate() {}
 
@@ -127,6 +135,25 @@ public class HealDTO {
         private static String safe(String v) { return v == null ? "" : v; }
     }
 
+    // Several broken locators from the same page ranked against ONE shared candidate list.
+    public static class BatchHealRequest {
+        public List<OldElement> olds;
+        public List<Candidate> candidates;
+
+        public BatchHealRequest() {}
+
+        public BatchHealRequest(List<OldElement> olds, List<Candidate> candidates) {
+            this.olds = olds;
+            this.candidates = candidates;
+        }
+    }
+
+    // results[i] answers olds[i]
+    public static class BatchHealResponse {
+        public List<HealResponse> results;
+        public BatchHealResponse() {}
+    }
+
     public static class HealResponse {
         public String healed_xpath;
         public double confidence;
@@ -0,0 +1,54 @@
+package com.fyp.qa.healing;
+
+// Overall time budget for one heal (heal.budget.ms). Each stage checks it before starting work;
+// once it runs out the engine returns the best verified result it already has, or fails fast.
+public final class HealDeadline {
+
+    private static final HealDeadline NONE = new HealDeadline(0);
+
+    private final long startNanos;
+    private final long budgetMs;     // <= 0 = unbounded
+
+    private HealDeadline(long budgetMs) {
+        this.startNanos = System.nanoTime();
+        this.budgetMs = budgetMs;
+    }
+
+    public static HealDeadline of(long budgetMs) {
+        return budgetMs <= 0 ? NONE : new HealDeadline(budgetMs);
+    }
+
+    public static HealDeadline none() {
+        return NONE;
+    }
+
+    public boolean isBounded() {
+        return budgetMs > 0;
+    }
+
+    public long budgetMs() {
+        return budgetMs;
+    }
+
+    public long elapsedMs() {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    public long remainingMs() {
+        return isBounded() ? Math.max(0L, budgetMs - elapsedMs()) : Long.MAX_VALUE;
+    }
+
+    public boolean expired() {
+        return isBounded() && remainingMs() == 0L;
+    }
+
+    // true if a stage expected to take `estimateMs` still fits in what is left
+    public boolean canAfford(long estimateMs) {
+        return !isBounded() || remainingMs() > Math.max(0L, estimateMs);
+    }
+
+    @Override
+    public String toString() {
+        return isBounded() ? "HealDeadline{budget=" + budgetMs + "ms elapsed=" + elapsedMs() + "ms}" : "HealDeadline{none}";
+    }
+}
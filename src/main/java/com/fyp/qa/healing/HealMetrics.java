@@ -0,0 +1,180 @@
+package com.fyp.qa.healing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Run-wide heal latency registry: count / sum / max and p50/p95/p99 per (stage, action, decision).
+// Fed by SelfHealingEngine after every heal with that heal's stage timings ("total" = whole heal);
+// exported as Prometheus text or a JSON snapshot when the JVM exits (heal.metrics.file).
+public final class HealMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealMetrics.class);
+
+    // percentiles come from the most recent samples of each series — plenty for a test run
+    private static final int WINDOW = 2048;
+
+    private static final Map<String, Series> SERIES = new ConcurrentHashMap<>();
+    private static final Set<String> EXPORTS = ConcurrentHashMap.newKeySet();
+
+    private HealMetrics() {}
+
+    // One finished heal: every stage it ran plus "total", under its action and final decision.
+    public static void recordHeal(String action, String decision, Map<String, Double> stageMs, double totalMs) {
+        String a = action == null || action.isBlank() ? "none" : action;
+        String d = decision == null || decision.isBlank() ? "NONE" : decision;
+        if (stageMs != null) {
+            for (Map.Entry<String, Double> e : stageMs.entrySet()) series(e.getKey(), a, d).add(e.getValue());
+        }
+        series("total", a, d).add(totalMs);
+    }
+
+    private static Series series(String stage, String action, String decision) {
+        return SERIES.computeIfAbsent(stage + '\u0000' + action + '\u0000' + decision,
+                k -> new Series(stage, action, decision));
+    }
+
+    public static List<Row> snapshot() {
+        List<Row> out = new ArrayList<>();
+        for (Series s : SERIES.values()) out.add(s.row());
+        out.sort(Comparator.comparing((Row r) -> r.stage).thenComparing(r -> r.action).thenComparing(r -> r.decision));
+        return out;
+    }
+
+    public static void reset() {
+        SERIES.clear();
+    }
+
+    public static String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP heal_stage_duration_ms Time spent per self-healing stage.\n");
+        sb.append("# TYPE heal_stage_duration_ms summary\n");
+        List<Row> rows = snapshot();
+        for (Row r : rows) {
+            String labels = "stage=\"" + esc(r.stage) + "\",action=\"" + esc(r.action) + "\",decision=\"" + esc(r.decision) + "\"";
+            sb.append("heal_stage_duration_ms{").append(labels).append(",quantile=\"0.5\"} ").append(r.p50).append('\n');
+            sb.append("heal_stage_duration_ms{").append(labels).append(",quantile=\"0.95\"} ").append(r.p95).append('\n');
+            sb.append("heal_stage_duration_ms{").append(labels).append(",quantile=\"0.99\"} ").append(r.p99).append('\n');
+            sb.append("heal_stage_duration_ms_sum{").append(labels).append("} ").append(r.sumMs).append('\n');
+            sb.append("heal_stage_duration_ms_count{").append(labels).append("} ").append(r.count).append('\n');
+        }
+        sb.append("# HELP heal_total Heals by action and decision.\n");
+        sb.append("# TYPE heal_total counter\n");
+        for (Row r : rows) {
+            if (!"total".equals(r.stage)) continue;
+            sb.append("heal_total{action=\"").append(esc(r.action)).append("\",decision=\"").append(esc(r.decision))
+                    .append("\"} ").append(r.count).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static String toJson() {
+        try {
+            return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(snapshot());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // *.json -> JSON snapshot, anything else -> Prometheus text format
+    public static void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        String body = file.toString().toLowerCase().endsWith(".json") ? toJson() : toPrometheus();
+        Files.write(file, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Writes the registry to `file` when the JVM exits; registered once per file, no-op for blank.
+    public static void exportOnExit(String file) {
+        if (file == null || file.isBlank() || !EXPORTS.add(file)) return;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                write(Paths.get(file));
+                logger.info("HEAL_METRICS: wrote {} series to {}", SERIES.size(), file);
+            } catch (IOException e) {
+                logger.warn("HEAL_METRICS: could not write {}: {}", file, e.toString());
+            }
+        }, "heal-metrics-export"));
+    }
+
+    private static String esc(String v) {
+        return v.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public static class Row {
+        public String stage;
+        public String action;
+        public String decision;
+        public long count;
+        public double sumMs;
+        public double maxMs;
+        public double p50;
+        public double p95;
+        public double p99;
+    }
+
+    private static final class Series {
+        private final String stage;
+        private final String action;
+        private final String decision;
+        private final double[] window = new double[WINDOW];
+        private long count;
+        private double sum;
+        private double max;
+
+        Series(String stage, String action, String decision) {
+            this.stage = stage;
+            this.action = action;
+            this.decision = decision;
+        }
+
+        synchronized void add(double ms) {
+            window[(int) (count % WINDOW)] = ms;
+            count++;
+            sum += ms;
+            max = Math.max(max, ms);
+        }
+
+        synchronized Row row() {
+            Row r = new Row();
+            r.stage = stage;
+            r.action = action;
+            r.decision = decision;
+            r.count = count;
+            r.sumMs = round(sum);
+            r.maxMs = round(max);
+            int n = (int) Math.min(count, WINDOW);
+            double[] sorted = Arrays.copyOf(window, n);
+            Arrays.sort(sorted);
+            r.p50 = round(percentile(sorted, 0.50));
+            r.p95 = round(percentile(sorted, 0.95));
+            r.p99 = round(percentile(sorted, 0.99));
+            return r;
+        }
+
+        // nearest-rank percentile
+        private static double percentile(double[] sorted, double q) {
+            if (sorted.length == 0) return 0.0;
+            int idx = (int) Math.ceil(q * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+        }
+
+        private static double round(double ms) {
+            return Math.round(ms * 1000.0) / 1000.0;
+        }
+    }
+}
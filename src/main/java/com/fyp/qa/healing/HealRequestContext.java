@@ -0,0 +1,44 @@
+package com.fyp.qa.healing;
+
+import org.openqa.selenium.By;
+
+// Everything that belongs to ONE heal call: which action failed on which locator, its time budget
+// and the threshold to apply. Passed down the pipeline instead of being written into shared config,
+// so concurrent heals on the same engine can't see each other's action.
+public final class HealRequestContext {
+
+    public final String action;              // "click", "sendKeys", ... ("" = unknown / pre-heal)
+    public final By locator;                 // null for batch heals
+    public final HealDeadline deadline;
+    public final double confidenceThreshold;
+
+    private HealRequestContext(String action, By locator, HealDeadline deadline, double confidenceThreshold) {
+        this.action = action == null ? "" : action;
+        this.locator = locator;
+        this.deadline = deadline == null ? HealDeadline.none() : deadline;
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    // Defaults from the config: its threshold and a fresh heal.budget.ms deadline.
+    public static HealRequestContext of(HealingConfig config, String action, By locator) {
+        return new HealRequestContext(action, locator, HealDeadline.of(config.healBudgetMs), config.confidenceThreshold);
+    }
+
+    public HealRequestContext withDeadline(HealDeadline deadline) {
+        return new HealRequestContext(action, locator, deadline, confidenceThreshold);
+    }
+
+    public HealRequestContext withThreshold(double confidenceThreshold) {
+        return new HealRequestContext(action, locator, deadline, confidenceThreshold);
+    }
+
+    public HealRequestContext withLocator(By locator) {
+        return new HealRequestContext(action, locator, deadline, confidenceThreshold);
+    }
+
+    @Override
+    public String toString() {
+        return "HealRequestContext{action=" + action + " locator=" + locator + " threshold=" + confidenceThreshold
+                + " " + deadline + "}";
+    }
+}
@@ -13,6 +13,23 @@ public class HealResult {
     public boolean sanityPassed;
     public String reason;
 
+    // iframe / shadow-host XPaths leading to the healed element (empty = top document);
+    // healedLocator is then a ScopedLocator that walks this path
+    public java.util.List<String> scopePath = new java.util.ArrayList<>();
+
+    // page context the heal was made on (used to key the persistent cache)
+    public String originalXpath;
+    public String urlPattern;
+    public String pageFingerprint;
+
+    // engine DOM probes spent on this heal (all run without implicit wait)
+    public int probeCount;
+    public long probeMs;
+
+    // time per heal stage in ms ("extract", "api", "verify", ...) and for the whole heal
+    public java.util.Map<String, Double> stageMs = new java.util.LinkedHashMap<>();
+    public double totalMs;
+
     public HealResult() {}
 
     public HealResult(By healedLocator, String healedXpath, double confidence, String decision) {
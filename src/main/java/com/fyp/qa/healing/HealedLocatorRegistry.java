@@ -0,0 +1,81 @@
+package com.fyp.qa.healing;
+
+import org.openqa.selenium.By;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Process-wide "(page, original By) -> healed By" map for the current session. The page is the
+// HealCache.urlPattern of the URL the heal was made on, so one page's heal never leaks onto another.
+// Bounded LRU (access order) with a TTL so a redesign mid-run doesn't pin stale heals forever.
+public final class HealedLocatorRegistry {
+
+    private static final HealedLocatorRegistry SHARED = new HealedLocatorRegistry(
+            Integer.getInteger("heal.registry.max", 512),
+            Duration.ofMinutes(Long.getLong("heal.registry.ttl.minutes", 30L)));
+
+    private static final class Entry {
+        final By healed;
+        final long expiresAt;
+
+        Entry(By healed, long expiresAt) {
+            this.healed = healed;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entry> map;
+
+    public HealedLocatorRegistry(int maxEntries, Duration ttl) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMs = ttl.toMillis();
+        this.map = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > HealedLocatorRegistry.this.maxEntries;
+            }
+        };
+    }
+
+    public static HealedLocatorRegistry shared() {
+        return SHARED;
+    }
+
+    // Returns the healed locator for this original on this page, or null if unknown / expired.
+    public synchronized By lookup(String urlPattern, By original) {
+        if (original == null) return null;
+        String key = key(urlPattern, original);
+        Entry e = map.get(key);
+        if (e == null) return null;
+        if (System.currentTimeMillis() > e.expiresAt) {
+            map.remove(key);
+            return null;
+        }
+        return e.healed;
+    }
+
+    public synchronized void remember(String urlPattern, By original, By healed) {
+        if (original == null || healed == null) return;
+        map.put(key(urlPattern, original), new Entry(healed, System.currentTimeMillis() + ttlMs));
+    }
+
+    public synchronized void forget(String urlPattern, By original) {
+        if (original == null) return;
+        map.remove(key(urlPattern, original));
+    }
+
+    private static String key(String urlPattern, By original) {
+        return (urlPattern == null ? "" : urlPattern) + "\n" + original;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+}
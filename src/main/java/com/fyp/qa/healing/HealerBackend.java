@@ -0,0 +1,87 @@
+package com.fyp.qa.healing;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+// Anything that can rank candidates for a broken locator: the HTTP healer service or the in-process ranker.
+@FunctionalInterface
+public interface HealerBackend {
+
+    HealDTO.HealResponse heal(HealDTO.HealRequest req) throws IOException;
+
+    // Non-blocking variant. Default runs heal() on the caller — fine for in-process backends.
+    default CompletableFuture<HealDTO.HealResponse> healAsync(HealDTO.HealRequest req) {
+        try {
+            return CompletableFuture.completedFuture(heal(req));
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    // Ranks every old element against the shared candidates. Default is one heal() per element;
+    // the HTTP client overrides it with a single /heal/batch round trip.
+    default java.util.List<HealDTO.HealResponse> healBatch(HealDTO.BatchHealRequest req) throws IOException {
+        java.util.List<HealDTO.HealResponse> out = new java.util.ArrayList<>(req.olds.size());
+        for (HealDTO.OldElement old : req.olds) {
+            out.add(heal(new HealDTO.HealRequest(old, req.candidates)));
+        }
+        return out;
+    }
+
+    // Use `fallback` whenever `primary` fails (service down, timeout, 5xx) instead of giving up on the heal.
+    static HealerBackend withFallback(HealerBackend primary, HealerBackend fallback) {
+        org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(HealerBackend.class);
+        return new HealerBackend() {
+            @Override
+            public HealDTO.HealResponse heal(HealDTO.HealRequest req) throws IOException {
+                try {
+                    return primary.heal(req);
+                } catch (IOException ex) {
+                    log.warn("HEAL: primary backend failed, using fallback | {}", ex.getMessage());
+                    return fallback.heal(req);
+                }
+            }
+
+            @Override
+            public java.util.List<HealDTO.HealResponse> healBatch(HealDTO.BatchHealRequest req) throws IOException {
+                try {
+                    return primary.healBatch(req);
+                } catch (IOException ex) {
+                    log.warn("HEAL: primary backend failed, using fallback | {}", ex.getMessage());
+                    return fallback.healBatch(req);
+                }
+            }
+
+            @Override
+            public CompletableFuture<HealDTO.HealResponse> healAsync(HealDTO.HealRequest req) {
+                CompletableFuture<HealDTO.HealResponse> first = primary.healAsync(req);
+                CompletableFuture<HealDTO.HealResponse> out = first.exceptionallyCompose(ex -> {
+                    Throwable cause = ex instanceof java.util.concurrent.CompletionException && ex.getCause() != null
+                            ? ex.getCause() : ex;
+                    if (cause instanceof java.util.concurrent.CancellationException) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    log.warn("HEAL: primary backend failed, using fallback | {}", cause.getMessage());
+                    return fallback.healAsync(req);
+                });
+                // cancelling the combined future must also cancel the in-flight primary call
+                out.whenComplete((r, ex) -> { if (out.isCancelled()) first.cancel(true); });
+                return out;
+            }
+        };
+    }
+
+    // "http" (default), "local", or "http+local" (HTTP with the local ranker as fallback)
+    static HealerBackend fromConfig(HealingConfig config) {
+        String kind = config.healerBackend == null ? "http" : config.healerBackend.trim().toLowerCase();
+        switch (kind) {
+            case "local":
+                return new LocalRanker();
+            case "http+local":
+            case "fallback":
+                return withFallback(new HealerClient(config), new LocalRanker());
+            default:
+                return new HealerClient(config);
+        }
+    }
+}
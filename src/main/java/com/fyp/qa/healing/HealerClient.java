@@ -1,107 +1,385 @@
 package com.fyp.qa.healing;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Buffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class HealerClient {
+public class HealerClient implements HealerBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealerClient.class);
 
     private final String apiUrl;
     private final OkHttpClient client;
     private final ObjectMapper mapper;
+    // switched off for the rest of the run once the service rejects a gzip body (415, or a 400/422 that
+    // the plain-JSON resend gets past)
+    private final AtomicBoolean gzip;
+    // dictionary-coded Smile body (CompactHealCodec); same fall-back-once rule as gzip
+    private final AtomicBoolean compact;
+    private final AtomicBoolean batchSupported = new AtomicBoolean(true);
+    private final RetryPolicy retry;
+    private final CircuitBreaker breaker;
 
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final MediaType COMPACT = MediaType.get(CompactHealCodec.CONTENT_TYPE);
 
     public HealerClient(String apiUrl) {
+        this(apiUrl, false, false);
+    }
+
+    public HealerClient(String apiUrl, boolean gzipRequests, boolean compactRequests) {
+        this(apiUrl, gzipRequests, compactRequests, RetryPolicy.defaults(), CircuitBreaker.forName(apiUrl, 3, 30000));
+    }
+
+    public HealerClient(HealingConfig config) {
+        this(config.apiUrl, config.gzipRequests, config.compactRequests,
+                RetryPolicy.fromConfig(config), CircuitBreaker.fromConfig(config.apiUrl, config));
+    }
+
+    public HealerClient(String apiUrl, boolean gzipRequests, boolean compactRequests,
+                        RetryPolicy retry, CircuitBreaker breaker) {
         this.apiUrl = apiUrl;
+        this.gzip = new AtomicBoolean(gzipRequests);
+        this.compact = new AtomicBoolean(compactRequests);
+        this.retry = retry;
+        this.breaker = breaker;
         this.mapper = new ObjectMapper();
+        // timeouts are per attempt; the total deadline across retries is enforced in post()
         this.client = new OkHttpClient.Builder()
-                .connectTimeout(Duration.ofSeconds(5))
-                .readTimeout(Duration.ofSeconds(20))
-                .callTimeout(Duration.ofSeconds(20))
+                .connectTimeout(Duration.ofMillis(retry.connectTimeoutMs))
+                .readTimeout(Duration.ofMillis(retry.attemptTimeoutMs))
+                .callTimeout(Duration.ofMillis(retry.attemptTimeoutMs))
                 .build();
     }
 
+    public CircuitBreaker.Snapshot breakerState() {
+        return breaker.snapshot();
+    }
+
+    // Blocking call — now just waits on healAsync (no Thread.sleep, retries are scheduled).
+    @Override
     public HealDTO.HealResponse heal(HealDTO.HealRequest req) throws IOException {
+        try {
+            return healAsync(req).join();
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Healer API call failed: " + cause, cause);
+        } catch (CancellationException ce) {
+            throw new IOException("Heal cancelled", ce);
+        }
+    }
+
+    // Non-blocking call on OkHttp's dispatcher. Cancelling the returned future cancels the HTTP call.
+    @Override
+    public CompletableFuture<HealDTO.HealResponse> healAsync(HealDTO.HealRequest req) {
+        return post(healUrl(), req, HealDTO.HealResponse.class);
+    }
+
+    // One POST to /heal/batch. Services without the endpoint (404/405) get the per-locator default from then on.
+    @Override
+    public List<HealDTO.HealResponse> healBatch(HealDTO.BatchHealRequest req) throws IOException {
+        if (!batchSupported.get()) return HealerBackend.super.healBatch(req);
+        try {
+            HealDTO.BatchHealResponse resp = post(healUrl() + "/batch", req, HealDTO.BatchHealResponse.class).join();
+            List<HealDTO.HealResponse> results = resp == null || resp.results == null ? List.of() : resp.results;
+            if (results.size() != req.olds.size()) {
+                throw new IOException("Healer batch returned " + results.size() + " results for " + req.olds.size() + " locators");
+            }
+            return results;
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause();
+            if (cause instanceof StatusException && (((StatusException) cause).code == 404 || ((StatusException) cause).code == 405)) {
+                batchSupported.set(false);
+                logger.warn("HEAL_HTTP: service has no batch endpoint, healing {} locators one by one", req.olds.size());
+                return HealerBackend.super.healBatch(req);
+            }
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Healer batch call failed: " + cause, cause);
+        } catch (CancellationException ce) {
+            throw new IOException("Heal cancelled", ce);
+        }
+    }
+
+    // append /heal path if not already present
+    private String healUrl() {
+        return apiUrl.endsWith("/heal") ? apiUrl : apiUrl.replaceAll("/+$", "") + "/heal";
+    }
+
+    private <T> CompletableFuture<T> post(String url, Object body, Class<T> type) {
+        CompletableFuture<T> result = new CompletableFuture<>();
         long start = System.currentTimeMillis();
 
-        String bodyJson = mapper.writeValueAsString(req);
+        // service known to be down — fail fast so the caller's local strategies take over
+        if (!breaker.tryAcquire()) {
+            result.completeExceptionally(new IOException("Healer circuit open, not calling " + url
+                    + " | " + breaker.snapshot()));
+            return result;
+        }
+        result.whenComplete((r, ex) -> recordOutcome(ex));
+        if (retry.totalTimeoutMs > 0) {
+            CompletableFuture.delayedExecutor(retry.totalTimeoutMs, TimeUnit.MILLISECONDS).execute(() ->
+                    result.completeExceptionally(new java.net.SocketTimeoutException("Healer API total deadline of "
+                            + retry.totalTimeoutMs + " ms exceeded: url=" + url)));
+        }
 
-        // append /heal path if not already present
-        String url = apiUrl.endsWith("/heal") ? apiUrl : apiUrl.replaceAll("/+$", "") + "/heal";
+        // body is streamed by Jackson straight into the OkHttp sink when the call is sent (no String copy)
+        Request request = buildRequest(url, body, gzip.get(), compact.get());
 
-        Request request = new Request.Builder()
-                .url(url)
-                .post(RequestBody.create(bodyJson, JSON))
-                .build();
+        AtomicReference<Call> inFlight = new AtomicReference<>();
+        result.whenComplete((r, ex) -> {
+            Call c = inFlight.get();
+            // cancelled by the caller or past the total deadline — stop the in-flight attempt
+            if (ex != null && c != null) c.cancel();
+        });
+        attempt(request, url, 1, start, type, inFlight, result);
+        return result;
+    }
 
-        // retry once on timeout or 5xx — transient API blips should not abort the heal
-        IOException lastEx = null;
-        Response response = null;
+    // retry timeouts / connection failures / 5xx per RetryPolicy — transient API blips should not abort the heal
+    private <T> void attempt(Request request, String url, int attempt, long start, Class<T> type,
+                             AtomicReference<Call> inFlight, CompletableFuture<T> result) {
+        if (result.isDone()) return;
+        Call call = client.newCall(request);
+        inFlight.set(call);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException ex) {
+                if (result.isDone()) return;
+                boolean transient_ = ex instanceof java.net.SocketTimeoutException
+                        || ex instanceof java.net.ConnectException
+                        || ex instanceof java.io.InterruptedIOException;
+                if (transient_ && !c.isCanceled() && retry.canRetry(attempt, System.currentTimeMillis() - start)) {
+                    retryLater(request, url, attempt, start, type, inFlight, result);
+                    return;
+                }
+                long ms = System.currentTimeMillis() - start;
+                result.completeExceptionally(new IOException("Healer API unreachable after " + attempt
+                        + " attempts: url=" + url + " elapsedMs=" + ms,
+                        new IOException("Attempt " + attempt + " failed: " + ex.getMessage(), ex)));
+            }
 
-        for (int attempt = 1; attempt <= 2; attempt++) {
-            try {
-                response = client.newCall(request).execute();
-                if (response.isSuccessful()) {
-                    lastEx = null;
-                    break;
+            @Override
+            public void onResponse(Call c, Response response) {
+                // 5xx — retry while the policy allows; 4xx — don't retry
+                if (response.code() >= 500 && retry.canRetry(attempt, System.currentTimeMillis() - start)) {
+                    response.close();
+                    retryLater(request, url, attempt, start, type, inFlight, result);
+                    return;
                 }
-                // 5xx — retry once
-                int code = response.code();
-                if (code >= 500 && attempt < 2) {
+                // service can't decode gzip / compact bodies — resend this one as plain JSON and stop using them.
+                // 415 says so outright; a 400/422 may just be a bad request, so only switch off once the
+                // plain resend went through.
+                if (isEncodingRejected(request, response.code())) {
+                    boolean usedGzip = "gzip".equals(request.header("Content-Encoding"));
+                    boolean usedCompact = ((JsonBody) request.body()).compact;
+                    Runnable fallBack = () -> {
+                        if (usedGzip) gzip.set(false);
+                        if (usedCompact) compact.set(false);
+                    };
+                    if (response.code() == 415) fallBack.run();
+                    else result.whenComplete((r, ex) -> {
+                        if (ex == null) fallBack.run();
+                    });
                     response.close();
-                    response = null;
-                    Thread.sleep(500);
-                    continue;
+                    logger.warn("HEAL_HTTP: service rejected {} request body ({}), falling back to plain JSON",
+                            request.body().contentType(), response.code());
+                    attempt(buildRequest(url, ((JsonBody) request.body()).value, false, false),
+                            url, attempt, start, type, inFlight, result);
+                    return;
                 }
-                break; // 4xx or second 5xx — don't retry
-            } catch (java.net.SocketTimeoutException | java.net.ConnectException ex) {
-                lastEx = new IOException("Attempt " + attempt + " failed: " + ex.getMessage(), ex);
-                if (attempt < 2) {
-                    try { Thread.sleep(500); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+                try {
+                    result.complete(parse(response, url, start, type));
+                } catch (IOException ex) {
+                    result.completeExceptionally(ex);
                 }
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                throw new IOException("Heal interrupted", ie);
             }
-        }
+        });
+    }
 
-        if (lastEx != null) {
-            long ms = System.currentTimeMillis() - start;
-            throw new IOException("Healer API unreachable after 2 attempts: url=" + url + " elapsedMs=" + ms, lastEx);
-        }
+    private Request buildRequest(String url, Object req, boolean compress, boolean compactBody) {
+        Request.Builder b = new Request.Builder()
+                .url(url)
+                .post(new JsonBody(mapper, req, compress, compactBody));
+        if (compress) b.header("Content-Encoding", "gzip");
+        return b.build();
+    }
 
-        if (response == null) {
-            throw new IOException("Healer API: no response after retries | url=" + url);
+    private static boolean isEncodingRejected(Request request, int code) {
+        boolean plain = !"gzip".equals(request.header("Content-Encoding")) && !((JsonBody) request.body()).compact;
+        // 415 is the proper answer; servers without request decompression usually fail the JSON decode (400/422)
+        return !plain && (code == 415 || code == 400 || code == 422);
+    }
+
+    private <T> void retryLater(Request request, String url, int attempt, long start, Class<T> type,
+                                AtomicReference<Call> inFlight, CompletableFuture<T> result) {
+        long delay = retry.delayMs(attempt + 1);
+        logger.info("HEAL_HTTP: attempt {} failed, retrying in {} ms", attempt, delay);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                .execute(() -> attempt(request, url, attempt + 1, start, type, inFlight, result));
+    }
+
+    // One outcome per logical call (after retries). A 4xx still means the service is up.
+    private void recordOutcome(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause == null || (cause instanceof StatusException && ((StatusException) cause).code < 500)) {
+            breaker.onSuccess();
+        } else if (cause instanceof CancellationException) {
+            breaker.onIgnored();
+        } else {
+            breaker.onFailure();
         }
+    }
 
+    private <T> T parse(Response response, String url, long start, Class<T> type) throws IOException {
         try (Response r = response) {
             long ms = System.currentTimeMillis() - start;
             int code = r.code();
-            String respBody = r.body() != null ? r.body().string() : "";
+            ResponseBody body = r.body();
 
             if (!r.isSuccessful()) {
-                throw new IOException("Healer API failed: " + code + " " + r.message() +
+                String respBody = body != null ? body.string() : "";
+                throw new StatusException(code, "Healer API failed: " + code + " " + r.message() +
                         " | url=" + url +
                         " | elapsedMs=" + ms +
                         " | body=" + truncate(respBody, 800));
             }
 
-            try {
-                HealDTO.HealResponse parsed = mapper.readValue(respBody, HealDTO.HealResponse.class);
+            long allocBefore = allocatedBytes();
+            try (InputStream in = body != null ? body.byteStream() : InputStream.nullInputStream()) {
+                T parsed = mapper.readValue(in, type);
                 System.out.println("HEAL parsed response = " + parsed);
+                logger.info("HEAL_HTTP: response bytes={} parseAllocBytes={} elapsedMs={}",
+                        body != null ? body.contentLength() : 0, allocatedBytes() - allocBefore, ms);
                 return parsed;
             } catch (Exception pe) {
+                // body is consumed by the streaming parser; Jackson's message carries the location and snippet
                 throw new IOException("Healer API parse failed" +
                         " | url=" + url +
                         " | elapsedMs=" + ms +
-                        " | body=" + truncate(respBody, 800), pe);
+                        " | error=" + truncate(pe.getMessage(), 800), pe);
             }
         }
     }
 
+    // Non-2xx answer from the service; the status code drives the batch / encoding fallbacks.
+    static final class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int code;
+
+        StatusException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    // Bytes allocated by the current thread so far, or -1 if the JVM doesn't expose it.
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    // Request body that serializes the HealRequest with a JsonGenerator directly into the outgoing sink,
+    // optionally dictionary-coded and/or gzipped. Re-serializes on every writeTo, so retries don't need a cached copy.
+    private static final class JsonBody extends RequestBody {
+        final ObjectMapper mapper;
+        final Object value;
+        final boolean compress;
+        final boolean compact;
+
+        JsonBody(ObjectMapper mapper, Object value, boolean compress, boolean compact) {
+            this.mapper = mapper;
+            this.value = value;
+            this.compress = compress;
+            // only single heal requests have a dictionary-coded form
+            this.compact = compact && value instanceof HealDTO.HealRequest;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return compact ? COMPACT : JSON;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;   // streamed, sent chunked
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            long allocBefore = allocatedBytes();
+            CountingSink wire = new CountingSink(sink);
+            BufferedSink target = compress ? Okio.buffer(new GzipSink(wire)) : Okio.buffer(wire);
+            CountingSink json = null;
+            if (compress) {
+                // count uncompressed bytes too, so the log shows the compression ratio
+                json = new CountingSink(target);
+                target = Okio.buffer(json);
+            }
+
+            if (compact) {
+                CompactHealCodec.encode(mapper, (HealDTO.HealRequest) value, target.outputStream());
+            } else {
+                JsonGenerator gen = mapper.getFactory().createGenerator(target.outputStream());
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                mapper.writeValue(gen, value);
+                gen.flush();
+            }
+            target.flush();
+            if (compress) target.close();   // finishes the gzip trailer; OkHttp tolerates a closed sink here
+            else target.emit();
+
+            long jsonBytes = json != null ? json.bytes : wire.bytes;
+            logger.info("HEAL_HTTP: request candidates={} jsonBytes={} wireBytes={} gzip={} compact={} serializeAllocBytes={}",
+                    candidateCount(value),
+                    jsonBytes, wire.bytes, compress, compact, allocatedBytes() - allocBefore);
+        }
+    }
+
+    private static int candidateCount(Object value) {
+        List<HealDTO.Candidate> c = value instanceof HealDTO.HealRequest ? ((HealDTO.HealRequest) value).candidates
+                : value instanceof HealDTO.BatchHealRequest ? ((HealDTO.BatchHealRequest) value).candidates : null;
+        return c == null ? 0 : c.size();
+    }
+
+    private static final class CountingSink extends ForwardingSink {
+        long bytes;
+
+        CountingSink(Sink delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            super.write(source, byteCount);
+            bytes += byteCount;
+        }
+    }
+
     private static String truncate(String s, int max) {
         if (s == null) return "";
         return s.length() <= max ? s : s.substring(0, max) + "...(truncated)";
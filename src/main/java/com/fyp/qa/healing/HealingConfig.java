@@ -1,42 +1,237 @@
 package com.fyp.qa.healing;
 
-public class HealingConfig {
-    public boolean enabled;
-    public String apiUrl;
-    public int maxCandidates;
-    public int waitSeconds;
-    public double confidenceThreshold;
-    public String actionName = "";
-    public boolean enableDomFallback = true;
-    public boolean allowVerifiedOverride = true;
-    public double minModelScore = 0.0;
-    public boolean requireSanityCheck = true;
-    public boolean enableIntentGate = true;
-    public boolean intentGateStrict = true;
+// Immutable healing settings. Build with HealingConfig.builder() or load with fromEnvironment();
+// per-call values (action, deadline, threshold overrides) travel in HealRequestContext instead.
+public final class HealingConfig {
+    public final boolean enabled;
+    public final String apiUrl;
+    public final int maxCandidates;
+    public final int waitSeconds;
+    public final double confidenceThreshold;
+    public final boolean enableDomFallback;
+    public final boolean allowVerifiedOverride;
+    public final double minModelScore;
+    public final boolean requireSanityCheck;
+    public final boolean enableIntentGate;
+    public final boolean intentGateStrict;
+    public final boolean enablePersistentCache;
+    public final String cacheFile;
+    public final CandidateExtractor.Mode extractionMode;
+    public final boolean installExtractionLibrary;
+    // "http" (default) | "local" (in-process LocalRanker) | "http+local" (HTTP, local ranker if it fails)
+    public final String healerBackend;
+    // gzip request bodies (Content-Encoding: gzip); turned off automatically if the service rejects them
+    public final boolean gzipRequests;
+    // dictionary-coded Smile request body (CompactHealCodec); falls back to plain JSON if the service answers 415
+    public final boolean compactRequests;
+    // start the API call right after extraction and run local heuristics while it is in flight
+    public final boolean raceLocalStrategies;
+    public final int preRankTopK;       // 0 = send every candidate
+    public final int preRankWidenFactor;
+    public final boolean incrementalExtraction;
+    // collect candidates from open shadow roots and same-origin iframes in the same extraction call
+    public final boolean extractScopes;
+    // apply the expected-tag tiers in the page, so filtered-out elements are never featurised or sent back
+    public final boolean browserTagFilter;
+    // overall time budget for one heal / healAll in ms (0 = unbounded); see HealDeadline
+    public final long healBudgetMs;
+    // healer HTTP resilience (RetryPolicy / CircuitBreaker)
+    public final int retryMaxAttempts;
+    public final long retryBackoffMs;
+    public final long retryMaxBackoffMs;
+    public final double retryJitter;
+    public final long connectTimeoutMs;
+    public final long attemptTimeoutMs;
+    public final long totalTimeoutMs;
+    public final int breakerFailureThreshold;
+    public final long breakerOpenMs;
+    // HealMetrics export at JVM exit: *.json for a JSON snapshot, anything else Prometheus text ("" = off)
+    public final String metricsFile;
 
+    private HealingConfig(Builder b) {
+        this.enabled = b.enabled;
+        this.apiUrl = b.apiUrl;
+        this.maxCandidates = b.maxCandidates;
+        this.waitSeconds = b.waitSeconds;
+        this.confidenceThreshold = b.confidenceThreshold;
+        this.enableDomFallback = b.enableDomFallback;
+        this.allowVerifiedOverride = b.allowVerifiedOverride;
+        this.minModelScore = b.minModelScore;
+        this.requireSanityCheck = b.requireSanityCheck;
+        this.enableIntentGate = b.enableIntentGate;
+        this.intentGateStrict = b.intentGateStrict;
+        this.enablePersistentCache = b.enablePersistentCache;
+        this.cacheFile = b.cacheFile;
+        this.extractionMode = b.extractionMode;
+        this.installExtractionLibrary = b.installExtractionLibrary;
+        this.healerBackend = b.healerBackend;
+        this.gzipRequests = b.gzipRequests;
+        this.compactRequests = b.compactRequests;
+        this.raceLocalStrategies = b.raceLocalStrategies;
+        this.preRankTopK = b.preRankTopK;
+        this.preRankWidenFactor = b.preRankWidenFactor;
+        this.incrementalExtraction = b.incrementalExtraction;
+        this.extractScopes = b.extractScopes;
+        this.browserTagFilter = b.browserTagFilter;
+        this.healBudgetMs = b.healBudgetMs;
+        this.retryMaxAttempts = b.retryMaxAttempts;
+        this.retryBackoffMs = b.retryBackoffMs;
+        this.retryMaxBackoffMs = b.retryMaxBackoffMs;
+        this.retryJitter = b.retryJitter;
+        this.connectTimeoutMs = b.connectTimeoutMs;
+        this.attemptTimeoutMs = b.attemptTimeoutMs;
+        this.totalTimeoutMs = b.totalTimeoutMs;
+        this.breakerFailureThreshold = b.breakerFailureThreshold;
+        this.breakerOpenMs = b.breakerOpenMs;
+        this.metricsFile = b.metricsFile;
+    }
 
-    // Now reads from env var so it can be tuned without recompiling.
-    private static double defaultThreshold() {
-        return 0.50d;
+    public HealingConfig(boolean enabled, String apiUrl, int maxCandidates, int waitSeconds) {
+        this(builder().enabled(enabled).apiUrl(apiUrl).maxCandidates(maxCandidates).waitSeconds(waitSeconds)
+                .confidenceThreshold(0.50d));
     }
 
-    public HealingConfig() {
-        this.confidenceThreshold = defaultThreshold();
+    public HealingConfig(boolean enabled, String apiUrl, int maxCandidates, int waitSeconds, double confidenceThreshold) {
+        this(builder().enabled(enabled).apiUrl(apiUrl).maxCandidates(maxCandidates).waitSeconds(waitSeconds)
+                .confidenceThreshold(confidenceThreshold));
     }
 
-    public HealingConfig(boolean enabled, String apiUrl, int maxCandidates, int waitSeconds) {
-        this.enabled = enabled;
-        this.apiUrl = apiUrl;
-        this.maxCandidates = maxCandidates;
-        this.waitSeconds = waitSeconds;
-        this.confidenceThreshold = defaultThreshold();
+    // Everything from system properties / env vars, so it can be tuned without recompiling.
+    public static HealingConfig fromEnvironment() {
+        return builder().build();
     }
 
-    public HealingConfig(boolean enabled, String apiUrl, int maxCandidates, int waitSeconds, double confidenceThreshold) {
-        this.enabled = enabled;
-        this.apiUrl = apiUrl;
-        this.maxCandidates = maxCandidates;
-        this.waitSeconds = waitSeconds;
-        this.confidenceThreshold = confidenceThreshold;
+    // Starts from the environment defaults; override what the caller needs.
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Copy with some values changed — the config itself never changes.
+    public Builder toBuilder() {
+        Builder b = new Builder();
+        b.enabled = enabled;
+        b.apiUrl = apiUrl;
+        b.maxCandidates = maxCandidates;
+        b.waitSeconds = waitSeconds;
+        b.confidenceThreshold = confidenceThreshold;
+        b.enableDomFallback = enableDomFallback;
+        b.allowVerifiedOverride = allowVerifiedOverride;
+        b.minModelScore = minModelScore;
+        b.requireSanityCheck = requireSanityCheck;
+        b.enableIntentGate = enableIntentGate;
+        b.intentGateStrict = intentGateStrict;
+        b.enablePersistentCache = enablePersistentCache;
+        b.cacheFile = cacheFile;
+        b.extractionMode = extractionMode;
+        b.installExtractionLibrary = installExtractionLibrary;
+        b.healerBackend = healerBackend;
+        b.gzipRequests = gzipRequests;
+        b.compactRequests = compactRequests;
+        b.raceLocalStrategies = raceLocalStrategies;
+        b.preRankTopK = preRankTopK;
+        b.preRankWidenFactor = preRankWidenFactor;
+        b.incrementalExtraction = incrementalExtraction;
+        b.extractScopes = extractScopes;
+        b.browserTagFilter = browserTagFilter;
+        b.healBudgetMs = healBudgetMs;
+        b.retryMaxAttempts = retryMaxAttempts;
+        b.retryBackoffMs = retryBackoffMs;
+        b.retryMaxBackoffMs = retryMaxBackoffMs;
+        b.retryJitter = retryJitter;
+        b.connectTimeoutMs = connectTimeoutMs;
+        b.attemptTimeoutMs = attemptTimeoutMs;
+        b.totalTimeoutMs = totalTimeoutMs;
+        b.breakerFailureThreshold = breakerFailureThreshold;
+        b.breakerOpenMs = breakerOpenMs;
+        b.metricsFile = metricsFile;
+        return b;
+    }
+
+    private static String env(String property, String envVar, String def) {
+        String v = System.getProperty(property);
+        if (v == null || v.isBlank()) v = System.getenv(envVar);
+        return v == null || v.isBlank() ? def : v.trim();
+    }
+
+    public static final class Builder {
+        private boolean enabled = Boolean.parseBoolean(env("heal.enabled", "HEAL_ENABLED", "true"));
+        // You can set HEAL_API_URL in docker-compose for runner service.
+        private String apiUrl = env("heal.api.url", "HEAL_API_URL", "http://127.0.0.1:8000");
+        private int maxCandidates = Integer.parseInt(env("heal.max.candidates", "HEAL_MAX_CANDIDATES", "200"));
+        private int waitSeconds = Integer.parseInt(env("heal.wait.seconds", "HEAL_WAIT_SECONDS", "5"));
+        private double confidenceThreshold = Double.parseDouble(env("heal.confidence.threshold", "HEAL_CONFIDENCE_THRESHOLD", "0.50"));
+        private boolean enableDomFallback = true;
+        private boolean allowVerifiedOverride = true;
+        private double minModelScore = 0.0;
+        private boolean requireSanityCheck = true;
+        private boolean enableIntentGate = true;
+        private boolean intentGateStrict = true;
+        private boolean enablePersistentCache = Boolean.parseBoolean(System.getProperty("heal.cache.enabled", "true"));
+        private String cacheFile = System.getProperty("heal.cache.file", ".heal-cache/healed-locators.jsonl");
+        private CandidateExtractor.Mode extractionMode =
+                CandidateExtractor.Mode.valueOf(System.getProperty("heal.extraction.mode", "OPTIMIZED").toUpperCase());
+        private boolean installExtractionLibrary = Boolean.parseBoolean(System.getProperty("heal.extraction.install", "true"));
+        private String healerBackend = env("heal.backend", "HEAL_BACKEND", "http");
+        private boolean gzipRequests = Boolean.parseBoolean(System.getProperty("heal.http.gzip", "false"));
+        private boolean compactRequests = Boolean.parseBoolean(System.getProperty("heal.http.compact", "false"));
+        private boolean raceLocalStrategies = Boolean.parseBoolean(System.getProperty("heal.race", "true"));
+        private int preRankTopK = Integer.getInteger("heal.prerank.topk", 40);
+        private int preRankWidenFactor = Integer.getInteger("heal.prerank.widen", 4);
+        private boolean incrementalExtraction = Boolean.parseBoolean(System.getProperty("heal.extraction.incremental", "false"));
+        private boolean extractScopes = Boolean.parseBoolean(System.getProperty("heal.extraction.scopes", "true"));
+        private boolean browserTagFilter = Boolean.parseBoolean(System.getProperty("heal.extraction.tagfilter", "true"));
+        private long healBudgetMs = Long.getLong("heal.budget.ms", 0L);
+        private int retryMaxAttempts = Integer.getInteger("heal.retry.attempts", 2);
+        private long retryBackoffMs = Long.getLong("heal.retry.backoff.ms", 500L);
+        private long retryMaxBackoffMs = Long.getLong("heal.retry.backoff.max.ms", 4000L);
+        private double retryJitter = Double.parseDouble(System.getProperty("heal.retry.jitter", "0.2"));
+        private long connectTimeoutMs = Long.getLong("heal.http.connect.timeout.ms", 5000L);
+        private long attemptTimeoutMs = Long.getLong("heal.http.attempt.timeout.ms", 20000L);
+        private long totalTimeoutMs = Long.getLong("heal.http.total.timeout.ms", 30000L);
+        private int breakerFailureThreshold = Integer.getInteger("heal.breaker.failures", 3);
+        private long breakerOpenMs = Long.getLong("heal.breaker.open.ms", 30000L);
+        private String metricsFile = env("heal.metrics.file", "HEAL_METRICS_FILE", "");
+
+        private Builder() {}
+
+        public Builder enabled(boolean v) { enabled = v; return this; }
+        public Builder apiUrl(String v) { apiUrl = v; return this; }
+        public Builder maxCandidates(int v) { maxCandidates = v; return this; }
+        public Builder waitSeconds(int v) { waitSeconds = v; return this; }
+        public Builder confidenceThreshold(double v) { confidenceThreshold = v; return this; }
+        public Builder enableDomFallback(boolean v) { enableDomFallback = v; return this; }
+        public Builder allowVerifiedOverride(boolean v) { allowVerifiedOverride = v; return this; }
+        public Builder minModelScore(double v) { minModelScore = v; return this; }
+        public Builder requireSanityCheck(boolean v) { requireSanityCheck = v; return this; }
+        public Builder enableIntentGate(boolean v) { enableIntentGate = v; return this; }
+        public Builder intentGateStrict(boolean v) { intentGateStrict = v; return this; }
+        public Builder enablePersistentCache(boolean v) { enablePersistentCache = v; return this; }
+        public Builder cacheFile(String v) { cacheFile = v; return this; }
+        public Builder extractionMode(CandidateExtractor.Mode v) { extractionMode = v; return this; }
+        public Builder installExtractionLibrary(boolean v) { installExtractionLibrary = v; return this; }
+        public Builder healerBackend(String v) { healerBackend = v; return this; }
+        public Builder gzipRequests(boolean v) { gzipRequests = v; return this; }
+        public Builder compactRequests(boolean v) { compactRequests = v; return this; }
+        public Builder raceLocalStrategies(boolean v) { raceLocalStrategies = v; return this; }
+        public Builder preRankTopK(int v) { preRankTopK = v; return this; }
+        public Builder preRankWidenFactor(int v) { preRankWidenFactor = v; return this; }
+        public Builder incrementalExtraction(boolean v) { incrementalExtraction = v; return this; }
+        public Builder extractScopes(boolean v) { extractScopes = v; return this; }
+        public Builder browserTagFilter(boolean v) { browserTagFilter = v; return this; }
+        public Builder healBudgetMs(long v) { healBudgetMs = v; return this; }
+        public Builder retryMaxAttempts(int v) { retryMaxAttempts = v; return this; }
+        public Builder retryBackoffMs(long v) { retryBackoffMs = v; return this; }
+        public Builder retryMaxBackoffMs(long v) { retryMaxBackoffMs = v; return this; }
+        public Builder retryJitter(double v) { retryJitter = v; return this; }
+        public Builder connectTimeoutMs(long v) { connectTimeoutMs = v; return this; }
+        public Builder attemptTimeoutMs(long v) { attemptTimeoutMs = v; return this; }
+        public Builder totalTimeoutMs(long v) { totalTimeoutMs = v; return this; }
+        public Builder breakerFailureThreshold(int v) { breakerFailureThreshold = v; return this; }
+        public Builder breakerOpenMs(long v) { breakerOpenMs = v; return this; }
+        public Builder metricsFile(String v) { metricsFile = v; return this; }
+
+        public HealingConfig build() {
+            return new HealingConfig(this);
+        }
     }
 }
@@ -0,0 +1,131 @@
+package com.fyp.qa.healing;
+
+import java.util.List;
+
+// In-process ranker implementing the healer contract without any network call.
+// Computes the same feature family as the Python service (attribute matches, label/text
+// sequence similarity, ancestor Jaccard, idx distance, bbox) and combines them with fixed
+// weights. Less accurate than the trained model, but it keeps healing alive on CI boxes
+// without network access or when the service is down.
+public class LocalRanker implements HealerBackend {
+
+    // decision thresholds on the normalised score
+    private final double autoHealScore;
+    private final double minMargin;
+
+    public LocalRanker() {
+        this(0.55, 0.05);
+    }
+
+    public LocalRanker(double autoHealScore, double minMargin) {
+        this.autoHealScore = autoHealScore;
+        this.minMargin = minMargin;
+    }
+
+    @Override
+    public HealDTO.HealResponse heal(HealDTO.HealRequest req) {
+        HealDTO.HealResponse resp = new HealDTO.HealResponse();
+        resp.decision = "manual_review";
+        resp.confidence = 0.0;
+        if (req == null || req.old == null || req.candidates == null || req.candidates.isEmpty()) {
+            return resp;
+        }
+
+        HealDTO.OldElement old = req.old;
+        List<HealDTO.Candidate> candidates = req.candidates;
+        HealDTO.Candidate best = null;
+        double bestScore = -1.0, secondScore = 0.0;
+
+        for (HealDTO.Candidate c : candidates) {
+            double s = score(old, c);
+            if (s > bestScore) {
+                secondScore = Math.max(bestScore, 0.0);
+                bestScore = s;
+                best = c;
+            } else if (s > secondScore) {
+                secondScore = s;
+            }
+        }
+
+        if (best == null) return resp;
+        resp.healed_xpath = best.xpath;
+        resp.confidence = Math.max(0.0, Math.min(1.0, bestScore));
+        resp.decision = (bestScore >= autoHealScore && bestScore - secondScore >= minMargin)
+                ? "auto_heal" : "manual_review";
+        return resp;
+    }
+
+    // Weighted mean over the features the old element actually has data for, in [0, 1].
+    double score(HealDTO.OldElement old, HealDTO.Candidate c) {
+        double sum = 0.0, weights = 0.0;
+
+        // attribute features: exact match = 1, otherwise sequence similarity (renamed ids etc.)
+        double[] attr = {
+                attrSim(old.id, c.id),                 0.20,
+                attrSim(old.dataTestId, c.dataTestId), 0.15,
+                attrSim(old.name, c.name),             0.10,
+                attrSim(old.placeholder, c.placeholder), 0.10,
+                attrSim(old.ariaLabel, c.ariaLabel),   0.10,
+                attrSim(old.type, c.type),             0.05,
+                attrSim(old.role, c.role),             0.03,
+                attrSim(old.title, c.title),           0.03,
+        };
+        String[] oldVals = { old.id, old.dataTestId, old.name, old.placeholder, old.ariaLabel,
+                old.type, old.role, old.title };
+        for (int i = 0; i < oldVals.length; i++) {
+            if (blank(oldVals[i])) continue;
+            sum += attr[2 * i] * attr[2 * i + 1];
+            weights += attr[2 * i + 1];
+        }
+
+        // text and label sequence similarity (old.text is the xpath hint, already intent-enriched)
+        if (!blank(old.text)) {
+            String oldText = TextSimilarity.norm(old.text);
+            sum += 0.20 * TextSimilarity.seqSim(oldText, TextSimilarity.norm(c.text));
+            weights += 0.20;
+            String oldLabel = blank(old.labelText) ? oldText : TextSimilarity.norm(old.labelText);
+            sum += 0.05 * TextSimilarity.seqSim(oldLabel, TextSimilarity.norm(c.labelText));
+            weights += 0.05;
+        }
+
+        // intent token present anywhere in the candidate
+        if (!blank(old.intent)) {
+            String blob = (c.text + " " + c.id + " " + c.name + " " + c.placeholder + " "
+                    + c.ariaLabel + " " + c.dataTestId + " " + c.labelText).toLowerCase();
+            sum += 0.10 * (blob.contains(old.intent.trim().toLowerCase()) ? 1.0 : 0.0);
+            weights += 0.10;
+        }
+
+        if (!blank(old.ancestorChain)) {
+            sum += 0.03 * TextSimilarity.tokenJaccard(old.ancestorChain, c.ancestorChain);
+            weights += 0.03;
+        }
+        if (!blank(old.tag)) {
+            sum += 0.05 * (old.tag.trim().equalsIgnoreCase(safe(c.tag)) ? 1.0 : 0.0);
+            weights += 0.05;
+        }
+
+        // weak priors: position in the candidate list and a real on-screen box
+        int idx = c.idx == null ? 0 : c.idx;
+        sum += 0.02 * (1.0 / (1.0 + Math.abs(idx - old.idx) / 10.0));
+        weights += 0.02;
+        sum += 0.02 * ((c.isVisible && c.bboxW >= 2 && c.bboxH >= 2) ? 1.0 : 0.0);
+        weights += 0.02;
+
+        return weights == 0.0 ? 0.0 : sum / weights;
+    }
+
+    private static double attrSim(String oldVal, String candVal) {
+        if (blank(oldVal) || blank(candVal)) return 0.0;
+        if (oldVal.trim().equalsIgnoreCase(candVal.trim())) return 1.0;
+        return TextSimilarity.seqSim(TextSimilarity.norm(oldVal), TextSimilarity.norm(candVal));
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
@@ -0,0 +1,304 @@
+package com.fyp.qa.healing;
+
+import org.openqa.selenium.By;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// What the engine needs to know about an old XPath locator, parsed once and shared by every heal stage
+// (hint text, intent gate, attribute fallback, OldElement enrichment, text rewrite, DOM fallback).
+// The parser is deliberately small: it understands steps, node tests, quoted literals and the
+// predicate shapes locators actually use — @attr='x', text()='x', normalize-space()='x', .='x',
+// contains(target,'x') and starts-with(target,'x'). Anything else is kept only as literals.
+public final class LocatorDescriptor {
+
+    public enum Match { EQUALS, CONTAINS, STARTS_WITH }
+
+    // One recognised predicate, e.g. contains(@id,'user') -> (CONTAINS, "@id", "user").
+    public static final class Predicate {
+        public final Match match;
+        public final String target;    // "@id", "text()", "normalize-space()", "."
+        public final String literal;
+
+        Predicate(Match match, String target, String literal) {
+            this.match = match;
+            this.target = target;
+            this.literal = literal;
+        }
+
+        public boolean isAttribute() { return target.startsWith("@"); }
+
+        // attribute name without '@', lower-cased; "" for text targets
+        public String attribute() { return isAttribute() ? target.substring(1).toLowerCase() : ""; }
+
+        public boolean isText() { return "text()".equals(target); }
+
+        @Override
+        public String toString() { return match + "(" + target + ",'" + literal + "')"; }
+    }
+
+    // literal tokens that carry a strong intent, checked in this order
+    private static final List<String> STRONG_INTENTS = List.of(
+            "password", "passcode", "pwd",
+            "username", "user", "userid",
+            "email", "mail",
+            "login", "signin", "sign-in",
+            "submit", "confirm",
+            "search", "find",
+            "qty", "quantity",
+            "cart", "basket"
+    );
+
+    private static final int CACHE_LIMIT = 1024;
+    private static final Map<String, LocatorDescriptor> CACHE = new ConcurrentHashMap<>();
+
+    public final String xpath;
+    public final String nodeTest;                 // node test of the last step as written ("*" kept)
+    public final String tag;                      // same, "" for "*" or when there's no step
+    public final List<String> literals;           // every quoted literal, in source order
+    public final List<Predicate> predicates;      // recognised predicates, in source order
+    public final String intentToken;              // first strong intent token found in a literal ("" if none)
+    public final String canonicalIntent;          // intentToken collapsed to its canonical form
+
+    private LocatorDescriptor(String xpath, String nodeTest, List<String> literals, List<Predicate> predicates) {
+        this.xpath = xpath;
+        this.nodeTest = nodeTest;
+        this.tag = "*".equals(nodeTest) ? "" : nodeTest;
+        this.literals = Collections.unmodifiableList(literals);
+        this.predicates = Collections.unmodifiableList(predicates);
+        this.intentToken = findIntent(literals);
+        this.canonicalIntent = canonicalIntent(intentToken);
+    }
+
+    // Descriptor for an XPath By, or null for other locator types. Cached per XPath string.
+    public static LocatorDescriptor of(By locator) {
+        if (locator == null) return null;
+        String s = locator.toString();
+        if (s == null || !s.startsWith("By.xpath:")) return null;
+        return parse(s.substring("By.xpath:".length()).trim());
+    }
+
+    // Cached parse of a raw XPath; null/blank gives an empty descriptor.
+    public static LocatorDescriptor parse(String xpath) {
+        String key = xpath == null ? "" : xpath;
+        LocatorDescriptor d = CACHE.get(key);
+        if (d != null) return d;
+        d = parseUncached(key);
+        if (CACHE.size() >= CACHE_LIMIT) CACHE.clear();   // locators are static per suite; this never churns in practice
+        CACHE.put(key, d);
+        return d;
+    }
+
+    // Fresh parse, bypassing the cache (benchmarks).
+    static LocatorDescriptor parseUncached(String xpath) {
+        return new Parser(xpath == null ? "" : xpath).parse();
+    }
+
+    // First literal of any kind — the best plain-text hint the locator carries.
+    public String firstLiteral() {
+        return literals.isEmpty() ? "" : literals.get(0);
+    }
+
+    // First literal whose length is within [min, max], "" if none.
+    public String firstLiteral(int min, int max) {
+        for (String l : literals) {
+            String t = l.trim();
+            if (t.length() >= min && t.length() <= max) return t;
+        }
+        return "";
+    }
+
+    // Literal compared against text() (contains(...) preferred, like the old regex order), "" if none.
+    public String textLiteral() {
+        for (Predicate p : predicates) if (p.isText() && p.match == Match.CONTAINS) return p.literal;
+        for (Predicate p : predicates) if (p.isText() && p.match == Match.EQUALS) return p.literal;
+        return "";
+    }
+
+    public boolean isTextBased() {
+        for (Predicate p : predicates) if (p.isText()) return true;
+        return false;
+    }
+
+    public boolean textContains() {
+        for (Predicate p : predicates) if (p.isText() && p.match == Match.CONTAINS) return true;
+        return false;
+    }
+
+    // First predicate on one of the given attributes that is an equality or contains(), null if none.
+    public Predicate firstAttribute(java.util.Set<String> attributes) {
+        for (Predicate p : predicates) {
+            if (!p.isAttribute() || p.match == Match.STARTS_WITH) continue;
+            if (attributes.contains(p.attribute())) return p;
+        }
+        return null;
+    }
+
+    // Collapses synonyms to a canonical intent ("pwd" -> "password"); lower-cases everything else.
+    public static String canonicalIntent(String token) {
+        if (token == null) return "";
+        token = token.trim().toLowerCase();
+        return switch (token) {
+            case "passcode", "pwd", "passwd", "pass", "pin" -> "password";
+            case "user", "userid", "uname", "loginid" -> "username";
+            case "signin", "sign-in", "signon", "logon" -> "login";
+            case "mail", "e-mail", "emailaddress" -> "email";
+            case "qty", "quant", "amount" -> "quantity";
+            default -> token;
+        };
+    }
+
+    private static String findIntent(List<String> literals) {
+        for (String lit : literals) {
+            String t = lit.trim().toLowerCase();
+            for (String k : STRONG_INTENTS) {
+                if (t.contains(k)) return k;
+            }
+        }
+        return "";
+    }
+
+    @Override
+    public String toString() {
+        return "LocatorDescriptor{tag=" + nodeTest + " predicates=" + predicates + " intent=" + canonicalIntent + "}";
+    }
+
+    // Single pass over the XPath: tracks the node test of each top-level step and turns the bracketed
+    // parts into a flat token list, then matches the predicate shapes on that list.
+    private static final class Parser {
+        private static final int LIT = 0, NAME = 1, ATTR = 2, CALL = 3, SYM = 4;
+
+        private final String s;
+        private final List<Integer> kinds = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+
+        Parser(String s) { this.s = s; }
+
+        LocatorDescriptor parse() {
+            List<String> literals = new ArrayList<>();
+            String nodeTest = "";
+            int depth = 0;
+            int i = 0, n = s.length();
+            while (i < n) {
+                char c = s.charAt(i);
+                if (c == '\'' || c == '"') {
+                    int end = s.indexOf(c, i + 1);
+                    if (end < 0) end = n;                           // unterminated: take the rest
+                    String lit = s.substring(i + 1, end);
+                    literals.add(lit);
+                    add(LIT, lit);
+                    i = end + 1;
+                } else if (c == '[') {
+                    depth++;
+                    add(SYM, "[");
+                    i++;
+                } else if (c == ']') {
+                    depth = Math.max(0, depth - 1);
+                    add(SYM, "]");
+                    i++;
+                } else if (depth == 0) {
+                    // outside predicates: only the step node tests matter
+                    if (c == '/') {
+                        i++;
+                        continue;
+                    }
+                    int start = i;
+                    while (i < n && "/[]'\"".indexOf(s.charAt(i)) < 0) i++;
+                    String step = s.substring(start, i).trim();
+                    int axis = step.lastIndexOf("::");
+                    if (axis >= 0) step = step.substring(axis + 2);
+                    step = step.replace("(", "").replace(")", "").trim();   // (//div)[2]
+                    if (!step.isEmpty() && !".".equals(step) && !"..".equals(step)) nodeTest = step;
+                } else if (c == '@') {
+                    int start = ++i;
+                    while (i < n && isNameChar(s.charAt(i))) i++;
+                    add(ATTR, "@" + s.substring(start, i));
+                } else if (isNameChar(c) && c != '.') {
+                    int start = i;
+                    while (i < n && isNameChar(s.charAt(i))) i++;
+                    String name = s.substring(start, i);
+                    int j = skipSpace(i);
+                    if (j < n && s.charAt(j) == '(') {
+                        int k = skipSpace(j + 1);
+                        if (k < n && s.charAt(k) == ')') {                       // text(), normalize-space()
+                            add(CALL, name + "()");
+                            i = k + 1;
+                        } else if (k < n && s.charAt(k) == '.' && skipSpace(k + 1) < n
+                                && s.charAt(skipSpace(k + 1)) == ')') {          // normalize-space(.)
+                            add(CALL, name + "()");
+                            i = skipSpace(k + 1) + 1;
+                        } else {                                                 // contains( / starts-with(
+                            add(NAME, name);
+                            add(SYM, "(");
+                            i = j + 1;
+                        }
+                    } else {
+                        add(NAME, name);
+                    }
+                } else if (c == '.') {
+                    add(NAME, ".");
+                    i++;
+                } else if (Character.isWhitespace(c)) {
+                    i++;
+                } else {
+                    add(SYM, String.valueOf(c));
+                    i++;
+                }
+            }
+            return new LocatorDescriptor(s, nodeTest, literals, predicates());
+        }
+
+        private List<Predicate> predicates() {
+            List<Predicate> out = new ArrayList<>();
+            for (int t = 0; t < values.size(); t++) {
+                if (kind(t) != LIT) continue;
+                String lit = values.get(t);
+                if (isSym(t - 1, "=") && isTarget(t - 2)) {
+                    out.add(new Predicate(Match.EQUALS, target(t - 2), lit));
+                } else if (isSym(t - 1, ",") && isTarget(t - 2) && isSym(t - 3, "(") && kind(t - 4) == NAME) {
+                    String fn = values.get(t - 4).toLowerCase();
+                    if ("contains".equals(fn)) out.add(new Predicate(Match.CONTAINS, target(t - 2), lit));
+                    else if ("starts-with".equals(fn)) out.add(new Predicate(Match.STARTS_WITH, target(t - 2), lit));
+                }
+            }
+            return out;
+        }
+
+        private boolean isTarget(int t) {
+            if (t < 0) return false;
+            int k = kind(t);
+            String v = values.get(t);
+            return k == ATTR || (k == CALL && ("text()".equals(v) || "normalize-space()".equals(v)))
+                    || (k == NAME && ".".equals(v));
+        }
+
+        private String target(int t) {
+            return values.get(t);
+        }
+
+        private boolean isSym(int t, String sym) {
+            return t >= 0 && kind(t) == SYM && sym.equals(values.get(t));
+        }
+
+        private int kind(int t) {
+            return t < 0 ? -1 : kinds.get(t);
+        }
+
+        private void add(int kind, String value) {
+            kinds.add(kind);
+            values.add(value);
+        }
+
+        private int skipSpace(int i) {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+            return i;
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == ':' || c == '.';
+        }
+    }
+}
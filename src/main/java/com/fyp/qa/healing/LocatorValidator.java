@@ -0,0 +1,152 @@
+package com.fyp.qa.healing;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Checks many locators in ONE executeScript call (match count + visibility of the first match),
+// so broken page-object fields are found up front instead of via one 30s timeout each.
+public class LocatorValidator {
+
+    private final WebDriver driver;
+
+    public static class LocatorStatus {
+        public String name;
+        public By locator;
+        public int matchCount;
+        public boolean visible;
+        public String error = "";
+        public HealResult healResult;   // set by SelfHealingEngine.preHeal for broken locators
+
+        public boolean isBroken() {
+            return matchCount == 0 && error.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + locator + " matches=" + matchCount + " visible=" + visible
+                    + (error.isEmpty() ? "" : " error=" + error);
+        }
+    }
+
+    private static final String VALIDATE_JS =
+            "function isVisible(e){\n" +
+            "  if(!e||e.nodeType!==1) return false;\n" +
+            "  const st = window.getComputedStyle(e);\n" +
+            "  if(!st) return false;\n" +
+            "  if(st.display==='none'||st.visibility==='hidden'||parseFloat(st.opacity||'1')===0) return false;\n" +
+            "  const r = e.getBoundingClientRect();\n" +
+            "  return !!r && r.width>=2 && r.height>=2;\n" +
+            "}\n" +
+            // arguments[0] = [[kind, expression], ...]   kind = 'xpath' | 'css'
+            "return arguments[0].map(function(q){\n" +
+            "  try {\n" +
+            "    if(q[0]==='css'){\n" +
+            "      const list=document.querySelectorAll(q[1]);\n" +
+            "      return {count:list.length, visible:list.length>0&&isVisible(list[0]), error:''};\n" +
+            "    }\n" +
+            "    const snap=document.evaluate(q[1],document,null,XPathResult.ORDERED_NODE_SNAPSHOT_TYPE,null);\n" +
+            "    return {count:snap.snapshotLength, visible:snap.snapshotLength>0&&isVisible(snap.snapshotItem(0)), error:''};\n" +
+            "  } catch(ex){ return {count:0, visible:false, error:''+(ex&&ex.message||ex)}; }\n" +
+            "});";
+
+    public LocatorValidator(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    // All instance By fields of a page object (own class + superclasses), keyed by field name.
+    public static Map<String, By> locatorFields(Object pageObject) {
+        Map<String, By> out = new LinkedHashMap<>();
+        if (pageObject == null) return out;
+        for (Class<?> c = pageObject.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers()) || !By.class.isAssignableFrom(f.getType())) continue;
+                try {
+                    f.setAccessible(true);
+                    By by = (By) f.get(pageObject);
+                    if (by != null) out.putIfAbsent(f.getName(), by);
+                } catch (Exception ignored) {
+                    // inaccessible field (module rules etc.) — nothing to validate
+                }
+            }
+        }
+        return out;
+    }
+
+    public List<LocatorStatus> validate(Object pageObject) {
+        return validate(locatorFields(pageObject));
+    }
+
+    public List<LocatorStatus> validate(List<By> locators) {
+        Map<String, By> named = new LinkedHashMap<>();
+        for (int i = 0; i < locators.size(); i++) named.put("locator[" + i + "]", locators.get(i));
+        return validate(named);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<LocatorStatus> validate(Map<String, By> locators) {
+        List<LocatorStatus> out = new ArrayList<>();
+        List<List<String>> queries = new ArrayList<>();
+        List<LocatorStatus> queried = new ArrayList<>();
+
+        for (Map.Entry<String, By> e : locators.entrySet()) {
+            LocatorStatus st = new LocatorStatus();
+            st.name = e.getKey();
+            st.locator = e.getValue();
+            out.add(st);
+
+            List<String> q = toQuery(e.getValue());
+            if (q == null) {
+                st.error = "unsupported locator type";
+                continue;
+            }
+            queries.add(q);
+            queried.add(st);
+        }
+        if (queries.isEmpty()) return out;
+
+        List<Map<String, Object>> raw =
+                (List<Map<String, Object>>) ((JavascriptExecutor) driver).executeScript(VALIDATE_JS, queries);
+
+        for (int i = 0; i < queried.size() && raw != null && i < raw.size(); i++) {
+            Map<String, Object> r = raw.get(i);
+            LocatorStatus st = queried.get(i);
+            st.matchCount = r.get("count") != null ? ((Number) r.get("count")).intValue() : 0;
+            st.visible = Boolean.TRUE.equals(r.get("visible"));
+            st.error = r.get("error") == null ? "" : r.get("error").toString();
+        }
+        return out;
+    }
+
+    // By -> [kind, expression] for the browser side; null for locator types we can't express in one query
+    private static List<String> toQuery(By by) {
+        String s = by.toString();
+        int colon = s.indexOf(':');
+        if (colon < 0) return null;
+        String kind = s.substring(0, colon).trim();
+        String v = s.substring(colon + 1).trim();
+        switch (kind) {
+            case "By.xpath":         return List.of("xpath", v);
+            case "By.cssSelector":   return List.of("css", v);
+            case "By.id":            return List.of("xpath", "//*[@id=" + xpathLiteral(v) + "]");
+            case "By.name":          return List.of("xpath", "//*[@name=" + xpathLiteral(v) + "]");
+            case "By.className":     return List.of("xpath", "//*[contains(concat(' ',normalize-space(@class),' '),"
+                                                         + xpathLiteral(" " + v + " ") + ")]");
+            case "By.tagName":       return List.of("css", v);
+            default:                 return null;
+        }
+    }
+
+    private static String xpathLiteral(String s) {
+        if (!s.contains("'")) return "'" + s + "'";
+        if (!s.contains("\"")) return "\"" + s + "\"";
+        return "concat('" + s.replace("'", "',\"'\",'") + "')";
+    }
+}
@@ -0,0 +1,60 @@
+package com.fyp.qa.healing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// How HealerClient retries one heal call: attempt count, exponential backoff with jitter,
+// a per-attempt timeout and a total deadline across all attempts (including the waits).
+public class RetryPolicy {
+
+    public final int maxAttempts;
+    public final long initialBackoffMs;
+    public final long maxBackoffMs;
+    public final double multiplier;
+    public final double jitter;            // 0.2 = each wait is randomised by ±20%
+    public final long connectTimeoutMs;
+    public final long attemptTimeoutMs;
+    public final long totalTimeoutMs;
+
+    public RetryPolicy(int maxAttempts, long initialBackoffMs, long maxBackoffMs, double multiplier, double jitter,
+                       long connectTimeoutMs, long attemptTimeoutMs, long totalTimeoutMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = Math.max(0, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+        this.multiplier = Math.max(1.0, multiplier);
+        this.jitter = Math.max(0.0, Math.min(1.0, jitter));
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.attemptTimeoutMs = attemptTimeoutMs;
+        this.totalTimeoutMs = totalTimeoutMs;
+    }
+
+    // what HealerClient used to hardcode: 2 attempts, 500ms apart, 5s connect / 20s call timeout
+    public static RetryPolicy defaults() {
+        return new RetryPolicy(2, 500, 4000, 2.0, 0.2, 5000, 20000, 30000);
+    }
+
+    public static RetryPolicy fromConfig(HealingConfig config) {
+        return new RetryPolicy(config.retryMaxAttempts, config.retryBackoffMs, config.retryMaxBackoffMs,
+                2.0, config.retryJitter, config.connectTimeoutMs, config.attemptTimeoutMs, config.totalTimeoutMs);
+    }
+
+    // Wait before attempt number `nextAttempt` (2 = first retry).
+    public long delayMs(int nextAttempt) {
+        double base = initialBackoffMs * Math.pow(multiplier, Math.max(0, nextAttempt - 2));
+        base = Math.min(base, maxBackoffMs);
+        double spread = base * jitter;
+        return Math.max(0L, Math.round(base + ThreadLocalRandom.current().nextDouble(-spread, spread + 1e-9)));
+    }
+
+    // true if another attempt (after its backoff) still fits in the total deadline
+    public boolean canRetry(int attemptsDone, long elapsedMs) {
+        if (attemptsDone >= maxAttempts) return false;
+        return totalTimeoutMs <= 0 || elapsedMs + delayMs(attemptsDone + 1) < totalTimeoutMs;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{attempts=" + maxAttempts + " backoff=" + initialBackoffMs + ".." + maxBackoffMs
+                + "ms x" + multiplier + " jitter=" + jitter + " attemptTimeout=" + attemptTimeoutMs
+                + "ms total=" + totalTimeoutMs + "ms}";
+    }
+}
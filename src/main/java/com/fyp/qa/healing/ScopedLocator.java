@@ -0,0 +1,80 @@
+package com.fyp.qa.healing;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Healed locator for an element inside same-origin iframes and/or open shadow roots.
+// scopePath holds the iframe / shadow-host XPaths from the top document down (as extracted by
+// CandidateExtractor); xpath is evaluated against the last root. Lookups start from the top document
+// and switch into every iframe on the way, so the driver is left in the element's frame — the action
+// layer switches back to defaultContent before its next action.
+public final class ScopedLocator extends By {
+
+    // Walks the path from the current document. Stops at the first iframe host ({frame, step}) so Java can
+    // switch into it; shadow roots are entered in place. Returns the matches once the path is exhausted.
+    private static final String RESOLVE_JS =
+            "var path = arguments[0], root = document;\n" +
+            "for (var i = 0; i < path.length; i++) {\n" +
+            "  var h = (root.ownerDocument || root).evaluate(path[i], root, null, " +
+            "XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;\n" +
+            "  if (!h) return [];\n" +
+            "  if (h.tagName === 'IFRAME' || h.tagName === 'FRAME') return {frame: h, step: i + 1};\n" +
+            "  root = h.shadowRoot;\n" +
+            "  if (!root) return [];\n" +
+            "}\n" +
+            "var r = (root.ownerDocument || root).evaluate(arguments[1], root, null, " +
+            "XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null), out = [];\n" +
+            "for (var k = 0; k < r.snapshotLength; k++) out.push(r.snapshotItem(k));\n" +
+            "return out;";
+
+    public final List<String> scopePath;
+    public final String xpath;
+
+    private ScopedLocator(List<String> scopePath, String xpath) {
+        this.scopePath = List.copyOf(scopePath);
+        this.xpath = xpath;
+    }
+
+    // Plain By.xpath for top-document elements, so nothing changes for the common case.
+    public static By of(List<String> scopePath, String xpath) {
+        if (scopePath == null || scopePath.isEmpty()) return By.xpath(xpath);
+        return new ScopedLocator(scopePath, xpath);
+    }
+
+    @Override
+    public List<WebElement> findElements(SearchContext context) {
+        // element-relative lookups have no frame to walk — the path does not apply there
+        if (!(context instanceof WebDriver) || !(context instanceof JavascriptExecutor)) {
+            return By.xpath(xpath).findElements(context);
+        }
+        WebDriver driver = (WebDriver) context;
+        driver.switchTo().defaultContent();
+        List<String> rest = scopePath;
+        while (true) {
+            Object r = ((JavascriptExecutor) driver).executeScript(RESOLVE_JS, rest, xpath);
+            if (r instanceof Map) {
+                Map<?, ?> m = (Map<?, ?>) r;
+                driver.switchTo().frame((WebElement) m.get("frame"));
+                rest = rest.subList(((Number) m.get("step")).intValue(), rest.size());
+                continue;
+            }
+            List<WebElement> out = new ArrayList<>();
+            if (r instanceof List) {
+                for (Object o : (List<?>) r) if (o instanceof WebElement) out.add((WebElement) o);
+            }
+            return out;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "By.scopedXpath: " + String.join(" >> ", scopePath) + " >> " + xpath;
+    }
+}
@@ -7,6 +7,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class SelfHealingEngine {
 //AI has used to implement this class
@@ -15,13 +17,29 @@ public class SelfHealingEngine {
     private final WebDriver driver;
     private final HealingConfig config;
     private final CandidateExtractor extractor;
-    private final HealerClient client;
+    private final HealerBackend backend;
+    private final HealCache cache;
+    private final HealedLocatorRegistry registry = HealedLocatorRegistry.shared();
 
     public SelfHealingEngine(WebDriver driver, HealingConfig config) {
+        this(driver, config, HealerBackend.fromConfig(config));
+    }
+
+    private SelfHealingEngine(WebDriver driver, HealingConfig config, HealerBackend backend) {
         this.driver = driver;
         this.config = config;
-        this.extractor = new CandidateExtractor(driver);
-        this.client = new HealerClient(config.apiUrl);
+        this.extractor = new CandidateExtractor(driver, config.extractionMode)
+                .setInstallLibrary(config.installExtractionLibrary)
+                .setIncremental(config.incrementalExtraction)
+                .setTraverseScopes(config.extractScopes);
+        this.backend = backend;
+        this.cache = config.enablePersistentCache ? HealCache.forFile(config.cacheFile) : null;
+        HealMetrics.exportOnExit(config.metricsFile);
+    }
+
+    // Same config and healer backend (HTTP client, connection pool, breaker) for another browser session.
+    public SelfHealingEngine forDriver(WebDriver otherDriver) {
+        return otherDriver == driver ? this : new SelfHealingEngine(otherDriver, config, backend);
     }
 
     public boolean isXPathLocator(By locator) {
@@ -30,12 +48,18 @@ public class SelfHealingEngine {
     }
 
     public String extractXPath(By locator) {
-        return locator.toString().replaceFirst("^By\\.xpath:\\s*", "");
+        LocatorDescriptor d = LocatorDescriptor.of(locator);
+        return d != null ? d.xpath : locator.toString();
     }
 
      // Returns HealResult (with healed xpath & confidence & decision) if healer suggests something,otherwise returns null.
     public HealResult healXPathResult(String oldXpath, String expectedText, String expectedTag, List<HealDTO.Candidate> candidates) throws Exception {
-        String intentTok = normalizeIntent(extractIntentToken(oldXpath));
+        return healXPathResult(buildOldElement(oldXpath, expectedText, expectedTag, ""), candidates);
+    }
+
+    // OldElement as the API sees it: hint text + tag + attributes recovered from the old xpath
+    private HealDTO.OldElement buildOldElement(String oldXpath, String expectedText, String expectedTag, String actionName) {
+        String intentTok = LocatorDescriptor.parse(oldXpath).canonicalIntent;
 
         HealDTO.OldElement old = new HealDTO.OldElement(
                 safe(expectedText),
@@ -58,7 +82,7 @@ public class SelfHealingEngine {
         // click + <input> can only ever have targeted type=submit or type=button.
         // Without this, type_match=0 for all candidates and idx_distance dominates,
         if (old.type == null || old.type.isBlank()) {
-            String action = safe(config.actionName).toLowerCase();
+            String action = safe(actionName).toLowerCase();
             String tag    = safe(old.tag).toLowerCase();
             if ((action.contains("click") || action.contains("tap")) && tag.equals("input")) {
                 old.type = "submit";
@@ -68,14 +92,53 @@ public class SelfHealingEngine {
             }
         }
 
+        return old;
+    }
+
+    private HealResult healXPathResult(HealDTO.OldElement old, List<HealDTO.Candidate> candidates) throws Exception {
+        return join(healXPathResultAsync(old, candidates));
+    }
+
+    // Starts the backend call and returns immediately; the response is turned into a HealResult on completion.
+    private CompletableFuture<HealResult> healXPathResultAsync(HealDTO.OldElement old, List<HealDTO.Candidate> candidates) {
         HealDTO.HealRequest req = new HealDTO.HealRequest(old, candidates);
 
         long start = System.currentTimeMillis();
         logger.info("HEAL: Calling API url={} oldXpathHintText='{}' expectedTag='{}' candidates={}",
-                config.apiUrl, expectedText, expectedTag,
+                config.apiUrl, old.text, old.tag,
                 (candidates == null ? 0 : candidates.size()));
 
-        HealDTO.HealResponse resp = client.heal(req);
+        CompletableFuture<HealDTO.HealResponse> call = backend.healAsync(req);
+        return cancelsUpstream(call.thenApply(resp -> withScope(toHealResult(resp, candidates, start), candidates)), call);
+    }
+
+    // Cancelling a thenApply/thenCompose stage does not reach the stage it was derived from; forward it so
+    // the backend's own future (and the HTTP call behind it) is cancelled too. Same idea as withFallback.
+    private static <T> CompletableFuture<T> cancelsUpstream(CompletableFuture<T> derived, CompletableFuture<?> source) {
+        derived.whenComplete((r, ex) -> {
+            if (derived.isCancelled()) source.cancel(true);
+        });
+        return derived;
+    }
+
+    // The ranker answers with an xpath only; a candidate from an iframe / shadow root also needs the path
+    // down to it. Top-document candidates come first in extraction order, so they win an identical xpath.
+    private static HealResult withScope(HealResult r, List<HealDTO.Candidate> pool) {
+        if (r == null || r.healedXpath == null || pool == null) return r;
+        for (HealDTO.Candidate c : pool) {
+            if (r.healedXpath.equals(c.xpath)) return scoped(r, c.scopePath);
+        }
+        return r;
+    }
+
+    private static HealResult scoped(HealResult r, List<String> scopePath) {
+        if (scopePath == null || scopePath.isEmpty()) return r;
+        r.scopePath = new java.util.ArrayList<>(scopePath);
+        r.healedLocator = ScopedLocator.of(scopePath, r.healedXpath);
+        return r;
+    }
+
+    private HealResult toHealResult(HealDTO.HealResponse resp, List<HealDTO.Candidate> candidates, long start) {
 
         // DEBUG: API payload candidates preview
         if (candidates != null) {
@@ -120,38 +183,345 @@ public class SelfHealingEngine {
      //Single entry: try heal from By locator.Returns HealResult or null.
 
     public HealResult heal(By originalLocator) {
+        return heal(originalLocator, "");
+    }
+
+    // `action` is the UI action that failed ("click", "sendKeys", ...) — it shapes the OldElement and the sanity check.
+    public HealResult heal(By originalLocator, String action) {
+        return heal(HealRequestContext.of(config, action, originalLocator));
+    }
+
+    // Reentrant: all per-call state lives in ctx, so one engine can serve concurrent heals.
+    public HealResult heal(HealRequestContext ctx) {
+        By originalLocator = ctx.locator;
         if (!config.enabled) return null;
         if (!isXPathLocator(originalLocator)) return null;
 
+        String oldXpath = extractXPath(originalLocator);
+        String urlPattern = "";
+        String fingerprint = "";
+        // page context captured before healing — the action may navigate away afterwards
+        try {
+            driver.switchTo().defaultContent();
+            urlPattern = HealCache.urlPattern(driver.getCurrentUrl());
+            if (cache != null) fingerprint = HealCache.fingerprint(driver);
+        } catch (Exception ignored) {}
+
+        long[] probesBefore = DomProbe.snapshot();
+        long healStart = System.nanoTime();
+        java.util.Map<String, Double> stages = new java.util.LinkedHashMap<>();
+        stageTimings.set(stages);
+        HealResult r;
+        try {
+            r = healInternal(ctx, oldXpath, urlPattern, fingerprint);
+        } finally {
+            stageTimings.remove();
+        }
+        double totalMs = (System.nanoTime() - healStart) / 1e6;
+        long[] probesAfter = DomProbe.snapshot();
+        logger.info("HEAL_PROBES: locator={} probes={} probeMs={} healMs={}", oldXpath,
+                probesAfter[0] - probesBefore[0], (probesAfter[1] - probesBefore[1]) / 1_000_000L, (long) totalMs);
+        logger.info("HEAL_STAGES: locator={} decision={} stages={} totalMs={}", oldXpath,
+                r != null ? r.decision : null, stages, String.format("%.1f", totalMs));
+        HealMetrics.recordHeal(ctx.action, r != null ? r.decision : null, stages, totalMs);
+        if (r != null) {
+            r.stageMs = stages;
+            r.totalMs = totalMs;
+            r.probeCount = (int) (probesAfter[0] - probesBefore[0]);
+            r.probeMs = (probesAfter[1] - probesBefore[1]) / 1_000_000L;
+            r.originalXpath = oldXpath;
+            r.urlPattern = urlPattern;
+            r.pageFingerprint = fingerprint;
+        }
+        return r;
+    }
+
+    // Heals several broken locators from the CURRENT page together: one candidate extraction and one
+    // batch request for all of them instead of one of each per locator. results.get(i) answers locators.get(i)
+    // (null for non-xpath locators or when healing is disabled), with the same decisions heal(By) would make.
+    public List<HealResult> healAll(List<By> locators) {
+        return healAll(locators, "");
+    }
+
+    public List<HealResult> healAll(List<By> locators, String action) {
+        // one budget for the whole batch — it replaces N separate heals
+        return healAll(locators, HealRequestContext.of(config, action, null));
+    }
+
+    public List<HealResult> healAll(List<By> locators, HealRequestContext ctx) {
+        List<HealResult> results = new java.util.ArrayList<>(java.util.Collections.nCopies(locators.size(), null));
+        if (!config.enabled || locators.isEmpty()) return results;
+
+        String urlPattern = "";
+        String fingerprint = "";
+        try {
+            driver.switchTo().defaultContent();
+            urlPattern = HealCache.urlPattern(driver.getCurrentUrl());
+            if (cache != null) fingerprint = HealCache.fingerprint(driver);
+        } catch (Exception ignored) {}
+
+        long healStart = System.nanoTime();
+        java.util.Map<String, Double> stages = new java.util.LinkedHashMap<>();
+        stageTimings.set(stages);
+        try {
+            healAllPending(locators, ctx, results, urlPattern, fingerprint);
+        } finally {
+            stageTimings.remove();
+        }
+        double totalMs = (System.nanoTime() - healStart) / 1e6;
+        // the stages are shared by the whole batch — recorded once, attached to every result
+        HealMetrics.recordHeal(ctx.action, "BATCH", stages, totalMs);
+        logger.info("HEAL_STAGES: batch of {} stages={} totalMs={}", locators.size(), stages, String.format("%.1f", totalMs));
+
+        for (int i = 0; i < locators.size(); i++) {
+            HealResult r = results.get(i);
+            if (r == null) continue;
+            r.originalXpath = extractXPath(locators.get(i));
+            r.urlPattern = urlPattern;
+            r.pageFingerprint = fingerprint;
+            r.stageMs = stages;
+            r.totalMs = totalMs;
+        }
+        return results;
+    }
+
+    private void healAllPending(List<By> locators, HealRequestContext ctx, List<HealResult> results,
+                                String urlPattern, String fingerprint) {
+        // cheap per-locator strategies first; whatever is left goes to the ranker together
+        List<Integer> pending = new java.util.ArrayList<>();
+        for (int i = 0; i < locators.size(); i++) {
+            By by = locators.get(i);
+            if (!isXPathLocator(by)) continue;
+            String oldXpath = extractXPath(by);
+            HealResult r = cache != null ? timed("cache", () -> cachedHeal(oldXpath, urlPattern, fingerprint)) : null;
+            if (r == null && config.enableDomFallback) r = timed("domFallback", () -> domFallback(oldXpath));
+            if (r != null) results.set(i, r);
+            else pending.add(i);
+        }
+
+        if (pending.size() == 1) {
+            int i = pending.get(0);
+            // cache and DOM fallback already missed above — start at extraction
+            results.set(i, healInternal(ctx.withLocator(locators.get(i)), extractXPath(locators.get(i)),
+                    urlPattern, fingerprint, true));
+        } else if (!pending.isEmpty()) {
+            healPendingBatch(ctx, locators, pending, results);
+        }
+    }
+
+    private void healPendingBatch(HealRequestContext ctx, List<By> locators, List<Integer> pending,
+                                  List<HealResult> results) {
+        HealDeadline deadline = ctx.deadline;
+        long start = System.currentTimeMillis();
+        if (!affordable(deadline, "extract")) {
+            for (int i : pending) results.set(i, outOfBudget(deadline, "extract", null));
+            return;
+        }
+        // no tag restriction in the shared pool — each locator gets its own tag-group view below
+        List<HealDTO.Candidate> all = timed("extract", () -> extractor.extract(config.maxCandidates, actionSelector(ctx.action, "")));
+        if (all == null) all = List.of();
+
+        List<Integer> toRank = new java.util.ArrayList<>();
+        List<HealDTO.OldElement> olds = new java.util.ArrayList<>();
+        java.util.Map<Integer, List<HealDTO.Candidate>> pools = new java.util.HashMap<>();
+        java.util.Map<Integer, HealResult> attrFallbacks = new java.util.HashMap<>();
+        java.util.Set<HealDTO.Candidate> shared = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());
+
+        for (int i : pending) {
+            String oldXpath = extractXPath(locators.get(i));
+            String expectedTag = LocatorDescriptor.parse(oldXpath).tag;
+            final List<HealDTO.Candidate> extracted = all;
+            List<HealDTO.Candidate> pool = timed("tagFilter", () -> filterByTagGroup(extracted, expectedTag));
+
+            if (LocatorDescriptor.parse(oldXpath).isTextBased()) {
+                HealResult textRewrite = timed("textRewrite", () -> tryRewriteTextLocator(oldXpath, pool));
+                if (textRewrite != null) {
+                    logger.info("TEXT_REWRITE: rewrote '{}' → '{}'", oldXpath, textRewrite.healedXpath);
+                    results.set(i, textRewrite);
+                    continue;
+                }
+            }
+
+            HealDTO.OldElement old = buildOldElement(oldXpath, expectedText(oldXpath), expectedTag, ctx.action);
+            pools.put(i, pool);
+            attrFallbacks.put(i, timed("attrFallback", () -> attributeFallback(oldXpath, pool)));
+            toRank.add(i);
+            olds.add(old);
+            // the request carries the union of every locator's pre-ranked top-K
+            shared.addAll(config.preRankTopK > 0 ? CandidatePreRanker.topK(old, pool, config.preRankTopK) : pool);
+        }
+        if (toRank.isEmpty()) return;
+
+        // keep DOM order in the shared list (the ranker uses idx distance)
+        List<HealDTO.Candidate> candidates = new java.util.ArrayList<>();
+        for (HealDTO.Candidate c : all) if (shared.contains(c)) candidates.add(c);
+
+        logger.info("HEAL_BATCH: calling API url={} locators={} candidates={} (extracted {})",
+                config.apiUrl, olds.size(), candidates.size(), all.size());
+
+        List<HealDTO.HealResponse> responses;
+        long apiStart = System.nanoTime();
         try {
-            String oldXpath = extractXPath(originalLocator);
+            responses = backend.healBatch(new HealDTO.BatchHealRequest(olds, candidates));
+            recordStage("api", apiStart);
+        } catch (Exception e) {
+            recordStage("api", apiStart);
+            logger.error("HEAL_BATCH: API failed for {} locators | {}", toRank.size(), e.toString());
+            for (int i : toRank) {
+                HealResult r = attrFallbacks.get(i);
+                if (r == null) r = new HealResult(null, null, 0.0d, "MANUAL_REVIEW_API_ERROR");
+                r.reason = "API error: " + e.getMessage();
+                results.set(i, r);
+            }
+            return;
+        }
+
+        for (int n = 0; n < toRank.size(); n++) {
+            int i = toRank.get(n);
+            String oldXpath = extractXPath(locators.get(i));
+            HealResult r = withScope(toHealResult(responses.get(n), null, start), pools.get(i));
+            results.set(i, finishHeal(ctx.withLocator(locators.get(i)), oldXpath, pools.get(i), r, attrFallbacks.get(i)));
+        }
+        logger.info("HEAL_BATCH: healed {} locators in {} ms", toRank.size(), System.currentTimeMillis() - start);
+    }
+
+    // Healed locator remembered earlier in this session (null when none) — lets actions skip the broken one.
+    public By rememberedLocator(By originalLocator) {
+        return config.enabled ? registry.lookup(currentUrlPattern(), originalLocator) : null;
+    }
+
+    public void forgetHealed(By originalLocator) {
+        registry.forget(currentUrlPattern(), originalLocator);
+    }
+
+    // Runs driver lookups with implicit wait 0 (restored afterwards) — for callers polling with their own wait.
+    public <T> T withoutImplicitWait(java.util.function.Supplier<T> work) {
+        return DomProbe.withoutImplicitWait(driver, work);
+    }
 
+    // Page a remembered heal belongs to — same pattern HealCache keys on; "" when the driver can't tell.
+    private String currentUrlPattern() {
+        try {
+            return HealCache.urlPattern(driver.getCurrentUrl());
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    // Validates every By field of a page object in one browser call and pre-heals the broken ones.
+    // Accepted heals go into the session registry, so later actions never wait on the broken locator.
+    public List<LocatorValidator.LocatorStatus> preHeal(Object pageObject) {
+        return preHeal(LocatorValidator.locatorFields(pageObject));
+    }
+
+    public List<LocatorValidator.LocatorStatus> preHeal(java.util.Map<String, By> locators) {
+        long start = System.currentTimeMillis();
+        List<LocatorValidator.LocatorStatus> statuses = new LocatorValidator(driver).validate(locators);
+        long validateMs = System.currentTimeMillis() - start;
+
+        String urlPattern = currentUrlPattern();
+        int broken = 0, healed = 0;
+        List<LocatorValidator.LocatorStatus> toHeal = new java.util.ArrayList<>();
+        for (LocatorValidator.LocatorStatus st : statuses) {
+            if (!st.isBroken()) continue;
+            broken++;
+            if (registry.lookup(urlPattern, st.locator) != null) continue;   // already healed this session
+            toHeal.add(st);
+        }
+
+        // all broken locators of the page in one extraction + one batch call
+        List<By> byList = new java.util.ArrayList<>();
+        for (LocatorValidator.LocatorStatus st : toHeal) byList.add(st.locator);
+        List<HealResult> results = healAll(byList);
+        for (int i = 0; i < toHeal.size(); i++) {
+            LocatorValidator.LocatorStatus st = toHeal.get(i);
+            HealResult r = results.get(i);
+            st.healResult = r;
+            if (r != null && r.healedLocator != null && r.decision != null && r.decision.startsWith("AUTO_HEAL")) {
+                registry.remember(urlPattern, st.locator, r.healedLocator);
+                healed++;
+            }
+        }
+        logger.info("PRE_HEAL: validated {} locators in {} ms broken={} healed={} totalMs={}",
+                statuses.size(), validateMs, broken, healed, System.currentTimeMillis() - start);
+        return statuses;
+    }
+
+    // Called by the action layer once a healed locator actually worked — only then is it worth remembering.
+    public void confirmHeal(By originalLocator, HealResult result) {
+        if (result == null || result.healedLocator == null) return;
+        // the page the heal ran on — the action may already have navigated away
+        String page = result.urlPattern != null ? result.urlPattern : currentUrlPattern();
+        registry.remember(page, originalLocator, result.healedLocator);
+
+        if (cache == null || result.healedXpath == null) return;
+        if ("AUTO_HEAL_CACHED".equals(result.decision)) return;
+        if (result.urlPattern == null || result.urlPattern.isBlank()) return;
+        String oldXpath = result.originalXpath != null ? result.originalXpath : extractXPath(originalLocator);
+        cache.put(oldXpath, result.urlPattern, result.pageFingerprint, result);
+        logger.info("HEAL_CACHE: stored {} -> {} ({})", oldXpath, result.healedXpath, result.urlPattern);
+    }
+
+    // Cached heal is only trusted after one uniqueness probe; a stale entry is dropped right away.
+    private HealResult cachedHeal(String oldXpath, String urlPattern, String fingerprint) {
+        HealCache.Entry e = cache.lookup(oldXpath, urlPattern, fingerprint);
+        if (e == null) return null;
+        if (countMatches(e.scopePath, e.healedXpath) == 1) {
+            logger.info("HEAL_CACHE: hit {} -> {}", oldXpath, e.healedXpath);
+            HealResult r = scoped(new HealResult(By.xpath(e.healedXpath), e.healedXpath, e.confidence, "AUTO_HEAL_CACHED"),
+                    e.scopePath);
+            r.matchCount = 1;
+            r.reason = "persistent cache (originally " + e.decision + ")";
+            return r;
+        }
+        logger.info("HEAL_CACHE: stale entry dropped {} -> {}", oldXpath, e.healedXpath);
+        cache.remove(e);
+        return null;
+    }
+
+    private HealResult healInternal(HealRequestContext ctx, String oldXpath, String urlPattern, String fingerprint) {
+        return healInternal(ctx, oldXpath, urlPattern, fingerprint, false);
+    }
+
+    // cheapStagesDone: the caller already ran the cache lookup and DOM fallback for this locator
+    private HealResult healInternal(HealRequestContext ctx, String oldXpath, String urlPattern, String fingerprint,
+                                    boolean cheapStagesDone) {
+        By originalLocator = ctx.locator;
+        HealDeadline deadline = ctx.deadline;
+        CompletableFuture<HealResult> apiCall = null;
+        try {
             // Always work from main document (avoid iframe context pollution)
             driver.switchTo().defaultContent();
 
-            if (config.enableDomFallback) {
-                HealResult fb = domFallback(oldXpath);
+            if (!cheapStagesDone && cache != null && !deadline.expired()) {
+                HealResult cached = timed("cache", () -> cachedHeal(oldXpath, urlPattern, fingerprint));
+                if (cached != null) return cached;
+            }
+
+            // Sequential mode keeps the old order: cheap DOM fallback before any extraction.
+            if (!cheapStagesDone && config.enableDomFallback && !config.raceLocalStrategies
+                    && affordable(deadline, "domFallback")) {
+                HealResult fb = timed("domFallback", () -> domFallback(oldXpath));
                 if (fb != null) return fb;
             }
 
             // ML heal
-            String expectedTag = inferTagFromXpath(oldXpath);
+            String expectedTag = LocatorDescriptor.parse(oldXpath).tag;
 
             // Action-agnostic: do not restrict tag based on action type
 
-            String expectedText = normalizeHint(extractBestHintFromXpath(oldXpath));
-
-            // reinforce with canonical intent token (password/username/login/etc.)
-            String intentTok = normalizeIntent(extractIntentToken(oldXpath));
-            if (!intentTok.isBlank() && !expectedText.toLowerCase().contains(intentTok)) {
-                expectedText = (expectedText + " " + intentTok).trim();
-            }
+            String expectedText = expectedText(oldXpath);
 
 
             // Extract candidates ONCE (tag-change resistant selector)
-            String selector = actionSelector(config.actionName, expectedTag);
-            List<HealDTO.Candidate> candidates = extractor.extract(config.maxCandidates, selector);
-            candidates = filterByTagGroup(candidates, expectedTag);
+            String selector = actionSelector(ctx.action, expectedTag);
+            if (!affordable(deadline, "extract")) return outOfBudget(deadline, "extract", null);
+            // the tag tiers run in the page; filterByTagGroup below is then a no-op (it still covers LEGACY mode)
+            CandidateExtractor.TagFilter tagFilter = config.browserTagFilter ? tagFilter(expectedTag) : null;
+            List<HealDTO.Candidate> candidates = timed("extract",
+                    () -> extractor.extract(config.maxCandidates, selector, tagFilter));
+            final List<HealDTO.Candidate> extracted = candidates;
+            candidates = timed("tagFilter", () -> filterByTagGroup(extracted, expectedTag));
 
             // DEBUG: Print candidates sent to the API (ranker input)
             if (candidates != null) {
@@ -179,124 +549,312 @@ public class SelfHealingEngine {
             }
 
 
+            HealDTO.OldElement old = buildOldElement(oldXpath, expectedText, expectedTag, ctx.action);
+
+            // Race mode: the API call is in flight while the local heuristics below run on this thread
+            // (WebDriver is not thread-safe, so local strategies stay here). First verified unique result wins.
+            // "api" = from request start until this thread has the answer (includes local work done meanwhile in race mode)
+            long apiStart = System.nanoTime();
+            if (config.raceLocalStrategies) {
+                apiCall = rankedHealAsync(old, candidates, ctx.confidenceThreshold);
+
+                if (!cheapStagesDone && config.enableDomFallback && affordable(deadline, "domFallback")) {
+                    HealResult fb = timed("domFallback", () -> domFallback(oldXpath));
+                    if (fb != null) return fb;
+                }
+            }
+
             // ── TEXT LOCATOR REWRITE ───────────────────────────────────────────
-            if (isTextBasedXpath(oldXpath)) {
-                HealResult textRewrite = tryRewriteTextLocator(oldXpath, candidates);
+            if (LocatorDescriptor.parse(oldXpath).isTextBased() && affordable(deadline, "textRewrite")) {
+                final List<HealDTO.Candidate> pool = candidates;
+                HealResult textRewrite = timed("textRewrite", () -> tryRewriteTextLocator(oldXpath, pool));
                 if (textRewrite != null) {
                     logger.info("TEXT_REWRITE: rewrote '{}' → '{}'", oldXpath, textRewrite.healedXpath);
                     return textRewrite;
                 }
             }
 
+            //  attributeFallback is computed while the API call runs, but is used AFTER ML as a confirming step only.
+            final List<HealDTO.Candidate> pool = candidates;
+            HealResult attrFb = affordable(deadline, "attrFallback")
+                    ? timed("attrFallback", () -> attributeFallback(oldXpath, pool)) : null;
 
             // ML heal using the same candidates (no repeated DOM work)
-            HealResult result = healXPathResult(oldXpath, expectedText, expectedTag, candidates);
-
-            if (result == null) return null;
-
-            //  attributeFallback runs AFTER ML as a confirming step only.
-            // If it agrees with ML, boost confidence. If it disagrees, trust ML.
-            HealResult attrFb = attributeFallback(oldXpath, candidates);
-            if (attrFb != null) {
-                if (attrFb.healedXpath != null && attrFb.healedXpath.equals(result.healedXpath)) {
-                    // ML and attribute heuristic agree — boost confidence
-                    result.confidence = Math.max(result.confidence, 0.95);
-                    result.decision = "AUTO_HEAL_ATTR_CONFIRMED";
+            HealResult result;
+            boolean apiCutShort = false;
+            try {
+                if (apiCall == null) {
+                    apiStart = System.nanoTime();
+                    apiCall = rankedHealAsync(old, candidates, ctx.confidenceThreshold);
+                }
+                result = joinWithin(apiCall, deadline);
+            } catch (java.util.concurrent.TimeoutException te) {
+                apiCutShort = true;
+                // out of budget while waiting on the API — a verified attribute match is the best we have
+                if (attrFb != null) {
+                    attrFb.reason = "heal budget exhausted waiting for API";
+                    return attrFb;
                 }
-                // if they disagree, trust ML — do nothing
+                return outOfBudget(deadline, "api", null);
+            } catch (Exception apiEx) {
+                // API down — a verified unique attribute match is still better than no heal at all
+                if (attrFb != null) {
+                    logger.warn("HEAL: API failed ({}), using verified attribute fallback {}", apiEx.toString(), attrFb.healedXpath);
+                    attrFb.reason = "API error: " + apiEx.getMessage();
+                    return attrFb;
+                }
+                throw apiEx;
+            } finally {
+                // a wait cut short by the budget says nothing about what the API costs
+                recordStage("api", apiStart, !apiCutShort);
             }
 
-            if (config.enableIntentGate) {
-                String oldTok = normalizeIntent(extractIntentToken(oldXpath));
-                if (!oldTok.isBlank()) {
-                    // Prefer DOM-attribute check; only fallback to string heuristic if DOM lookup fails
-                    boolean ok = healedElementContainsToken(result.healedXpath, oldTok) || intentMatches(oldXpath, result.healedXpath);
-                    if (!ok) {
-                        result.decision = "REJECT_INTENT_MISMATCH";
-                        result.reason = "Intent mismatch: old=" + oldTok + " healed=" + result.healedXpath;
-                        return result;
-                    }
-                }
+            return finishHeal(ctx, oldXpath, candidates, result, attrFb);
+
+        } catch (Exception e) {
+            String oldXpathSafe = "";
+            try { oldXpathSafe = extractXPath(originalLocator); } catch (Exception ignore) {}
+
+            logger.error("HEAL: Exception during healing. locator={} oldXpath={} apiUrl={} action={} msg={}",
+                    originalLocator, oldXpathSafe, config.apiUrl, ctx.action, e.toString(), e);
+
+            HealResult r = new HealResult(null, null, 0.0d, "MANUAL_REVIEW_API_ERROR");
+            r.reason = e.getMessage();
+            return r;
+        } finally {
+            // a local strategy won (or we failed) — don't leave the HTTP call running
+            if (apiCall != null && !apiCall.isDone()) apiCall.cancel(true);
+        }
+    }
+
+
+    private String expectedText(String oldXpath) {
+        String expectedText = normalizeHint(LocatorDescriptor.parse(oldXpath).firstLiteral());
+
+        // reinforce with canonical intent token (password/username/login/etc.)
+        String intentTok = LocatorDescriptor.parse(oldXpath).canonicalIntent;
+        if (!intentTok.isBlank() && !expectedText.toLowerCase().contains(intentTok)) {
+            expectedText = (expectedText + " " + intentTok).trim();
+        }
+        return expectedText;
+    }
+
+    // false = healed element doesn't carry the old locator's intent; result is marked REJECT_INTENT_MISMATCH
+    private boolean intentGatePasses(String oldXpath, HealResult result, DomProbe.Verification probe) {
+        String oldTok = LocatorDescriptor.parse(oldXpath).canonicalIntent;
+        if (oldTok.isBlank()) return true;
+        // Prefer DOM-attribute check; only fallback to string heuristic if DOM lookup fails
+        boolean ok = blobContainsToken(probe.blob, oldTok) || intentMatches(oldXpath, result.healedXpath);
+        if (!ok) {
+            result.decision = "REJECT_INTENT_MISMATCH";
+            result.reason = "Intent mismatch: old=" + oldTok + " healed=" + result.healedXpath;
+        }
+        return ok;
+    }
+
+    // Checks after the ranker answered: attribute confirmation, intent gate, ad reject, uniqueness and
+    // action sanity, then the final AUTO_HEAL / MANUAL_REVIEW decision.
+    private HealResult finishHeal(HealRequestContext ctx, String oldXpath, List<HealDTO.Candidate> candidates,
+                                  HealResult result, HealResult attrFb) {
+        HealDeadline deadline = ctx.deadline;
+        if (result == null) return null;
+
+        // If it agrees with ML, boost confidence. If it disagrees, trust ML.
+        if (attrFb != null) {
+            if (attrFb.healedXpath != null && attrFb.healedXpath.equals(result.healedXpath)
+                    && attrFb.scopePath.equals(result.scopePath)) {
+                // ML and attribute heuristic agree — boost confidence
+                result.confidence = Math.max(result.confidence, 0.95);
+                result.decision = "AUTO_HEAL_ATTR_CONFIRMED";
             }
+            // if they disagree, trust ML — do nothing
+        }
 
-            // STEP 2: hard reject ad/iframe-like heals
-            if (isAdLikeXpath(result.healedXpath)) {
-                result.decision = "REJECT_AD_IFRAME";
-                return result;
+        // no budget left for the DOM checks below — only an already-verified heal may go through
+        if (!affordable(deadline, "verify")) {
+            if (attrFb != null) {
+                attrFb.reason = "heal budget exhausted before verifying API result " + result.healedXpath;
+                return attrFb;
             }
+            return outOfBudget(deadline, "verify", result);
+        }
+        return timed("verify", () -> verifyHeal(ctx, oldXpath, candidates, result));
+    }
+
+    private HealResult verifyHeal(HealRequestContext ctx, String oldXpath, List<HealDTO.Candidate> candidates,
+                                  HealResult result) {
 
-            result.confidence = Math.min(result.confidence, 1.0);
+        // single browser call; every DOM check below is evaluated from it
+        DomProbe.Verification probe = DomProbe.verify(driver, result.scopePath, result.healedXpath);
+        logger.debug("HEAL_VERIFY: {} {}", result.healedXpath, probe);
+
+        if (config.enableIntentGate && !timed("intentGate", () -> intentGatePasses(oldXpath, result, probe))) {
+            return result;
+        }
 
-            int matches = countMatches(result.healedXpath);
-            result.matchCount = matches;   // <-- store for audit/logging
+        // STEP 2: hard reject ad/iframe-like heals
+        if (isAdLikeXpath(result.healedXpath) || result.scopePath.stream().anyMatch(this::isAdLikeXpath)) {
+            result.decision = "REJECT_AD_IFRAME";
+            return result;
+        }
 
-            // VERIFIED override should NOT bypass intent/action correctness
-            if (config.allowVerifiedOverride
-                    && matches == 1
-                    && !"manual_review".equalsIgnoreCase(result.decision)
-                    && result.confidence >= config.confidenceThreshold
-                    && !isAbsolutePositionalXpath(result.healedXpath)) {
+        result.confidence = Math.min(result.confidence, 1.0);
 
-                boolean sane;
+        int matches = probe.count;
+        result.matchCount = matches;   // <-- store for audit/logging
 
-                // 1) Action sanity (DOM-based, tag-change resistant)
-                try {
-                    WebElement el = driver.findElement(By.xpath(result.healedXpath));
-                    sane = isAllowedForAction(config.actionName, el);
-                } catch (Exception e) {
-                    sane = false;
-                }
+        // VERIFIED override should NOT bypass intent/action correctness
+        if (config.allowVerifiedOverride
+                && probe.unique
+                && !"manual_review".equalsIgnoreCase(result.decision)
+                && result.confidence >= ctx.confidenceThreshold
+                && !probe.positional) {
 
-                // 2) Intent sanity (prevents Email -> Username)
-                if (sane) {
-                    String intent = normalizeIntent(extractIntentToken(oldXpath));
-
-                    // If old xpath contains strong intent but it's not present anywhere on the page, don't auto-heal
-                    if (!intent.isBlank() && !anyCandidateContainsToken(candidates, intent)) {
-                        result.decision = "MANUAL_REVIEW_NO_INTENT_ON_PAGE";
-                        return result;
-                    }
-
-                    // If intent exists, healed element must contain it (fuzzy OK)
-                    if (!intent.isBlank() && !healedElementContainsToken(result.healedXpath, intent)) {
-                        result.decision = "REJECT_INTENT_MISMATCH";
-                        return result;
-                    }
+            // 1) Action sanity (DOM-based, tag-change resistant)
+            boolean sane = probe.found() && isAllowedForAction(ctx.action, probe);
+
+            // 2) Intent sanity (prevents Email -> Username)
+            if (sane) {
+                String intent = LocatorDescriptor.parse(oldXpath).canonicalIntent;
+
+                // If old xpath contains strong intent but it's not present anywhere on the page, don't auto-heal
+                if (!intent.isBlank() && !anyCandidateContainsToken(candidates, intent)) {
+                    result.decision = "MANUAL_REVIEW_NO_INTENT_ON_PAGE";
+                    return result;
                 }
 
-                if (sane && result.confidence >= config.confidenceThreshold) {
-                    result.decision = "AUTO_HEAL_VERIFIED_UNIQUE";
+                // If intent exists, healed element must contain it (fuzzy OK)
+                if (!intent.isBlank() && !blobContainsToken(probe.blob, intent)) {
+                    result.decision = "REJECT_INTENT_MISMATCH";
                     return result;
                 }
             }
 
-            boolean apiAuto = result.decision != null && (
-                    result.decision.equalsIgnoreCase("auto_heal") ||
-                            result.decision.equalsIgnoreCase("AUTO_HEAL_ATTR_CONFIRMED")
-            );
+            if (sane && result.confidence >= ctx.confidenceThreshold) {
+                result.decision = "AUTO_HEAL_VERIFIED_UNIQUE";
+                return result;
+            }
+        }
 
-            // If API said manual_review, do NOT force auto-heal here.
-            // Only auto-heal if API is auto_heal and confidence passes threshold.
-            if (apiAuto && result.confidence >= config.confidenceThreshold) {
-                result.decision = "AUTO_HEAL_CONFIDENT";
-            } else {
-                result.decision = "MANUAL_REVIEW";
+        boolean apiAuto = result.decision != null && (
+                result.decision.equalsIgnoreCase("auto_heal") ||
+                        result.decision.equalsIgnoreCase("AUTO_HEAL_ATTR_CONFIRMED")
+        );
+
+        // If API said manual_review, do NOT force auto-heal here.
+        // Only auto-heal if API is auto_heal and confidence passes threshold.
+        if (apiAuto && result.confidence >= ctx.confidenceThreshold) {
+            result.decision = "AUTO_HEAL_CONFIDENT";
+        } else {
+            result.decision = "MANUAL_REVIEW";
+        }
+        return result;
+    }
+
+    // Sends only the locally pre-ranked top-K candidates; widens the pool once if the API isn't confident.
+    private CompletableFuture<HealResult> rankedHealAsync(HealDTO.OldElement old, List<HealDTO.Candidate> candidates,
+                                                          double confidenceThreshold) {
+        int k = config.preRankTopK;
+        if (k <= 0 || candidates == null || candidates.size() <= k) {
+            return healXPathResultAsync(old, candidates);
+        }
+
+        List<HealDTO.Candidate> ranked = CandidatePreRanker.topK(old, candidates, k);
+        logger.info("PRE_RANK: pool={} -> topK={}", candidates.size(), ranked.size());
+        CompletableFuture<HealResult> first = healXPathResultAsync(old, ranked);
+        // the widened request only exists once the first answer is in; cancelling the composed future must
+        // reach whichever of the two is in flight
+        CompletableFuture<HealResult> out = new CompletableFuture<>();
+        cancelsUpstream(out, first);
+        first.thenCompose(r -> {
+            if (r.healedXpath != null && r.confidence >= confidenceThreshold) {
+                return CompletableFuture.completedFuture(r);
             }
-            return result;
+            if (out.isDone()) return CompletableFuture.completedFuture(r);
+            int wider = Math.min(candidates.size(), k * Math.max(2, config.preRankWidenFactor));
+            logger.info("PRE_RANK: low confidence {} (decision={}) — widening pool {} -> {}",
+                    r.confidence, r.decision, ranked.size(), wider);
+            CompletableFuture<HealResult> second = healXPathResultAsync(old, CandidatePreRanker.topK(old, candidates, wider));
+            cancelsUpstream(out, second);
+            return second.thenApply(widened -> (widened.healedXpath != null && widened.confidence >= r.confidence) ? widened : r);
+        }).whenComplete((r, ex) -> {
+            if (ex != null) out.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            else out.complete(r);
+        });
+        return out;
+    }
 
-        } catch (Exception e) {
-            String oldXpathSafe = "";
-            try { oldXpathSafe = extractXPath(originalLocator); } catch (Exception ignore) {}
+    // Waits for a future, rethrowing the original failure instead of the CompletionException wrapper.
+    private static <T> T join(CompletableFuture<T> f) throws Exception {
+        try {
+            return f.join();
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause() != null ? ce.getCause() : ce;
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw ce;
+        }
+    }
 
-            logger.error("HEAL: Exception during healing. locator={} oldXpath={} apiUrl={} action={} msg={}",
-                    originalLocator, oldXpathSafe, config.apiUrl, config.actionName, e.toString(), e);
+    // join() bounded by the heal budget; TimeoutException when the budget runs out first
+    private static <T> T joinWithin(CompletableFuture<T> f, HealDeadline deadline) throws Exception {
+        if (!deadline.isBounded()) return join(f);
+        try {
+            return f.get(deadline.remainingMs(), java.util.concurrent.TimeUnit.MILLISECONDS);
+        } catch (java.util.concurrent.ExecutionException ee) {
+            Throwable cause = ee.getCause() != null ? ee.getCause() : ee;
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw ee;
+        }
+    }
 
-            HealResult r = new HealResult(null, null, 0.0d, "MANUAL_REVIEW_API_ERROR");
-            r.reason = e.getMessage();
-            return r;
+    // Last observed cost per stage (smoothed) — a stage is skipped when the remaining budget can't cover it.
+    // The estimate only moves when the stage runs, so two guards keep one slow sample (cold first
+    // extraction, a stalled API) from locking a stage out: an estimate a full budget could never cover
+    // doesn't skip, and every skip halves the estimate so the stage soon runs and is measured again.
+    private final java.util.Map<String, Long> stageCostMs = new java.util.concurrent.ConcurrentHashMap<>();
+
+    private boolean affordable(HealDeadline deadline, String stage) {
+        long estimate = stageCostMs.getOrDefault(stage, 0L);
+        if (!deadline.isBounded() || estimate >= deadline.budgetMs() || deadline.canAfford(estimate)) return true;
+        stageCostMs.computeIfPresent(stage, (k, v) -> v / 2);
+        logger.info("HEAL_BUDGET: skipping {} (estimate {} ms, remaining {} ms)",
+                stage, estimate, deadline.remainingMs());
+        return false;
+    }
+
+    // Stage timings of the heal running on this thread (set by heal / healAll) — copied into HealResult.stageMs.
+    private static final ThreadLocal<java.util.Map<String, Double>> stageTimings = new ThreadLocal<>();
+
+    private <T> T timed(String stage, java.util.function.Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            recordStage(stage, start);
         }
     }
 
+    private void recordStage(String stage, long startNanos) {
+        recordStage(stage, startNanos, true);
+    }
+
+    // sample=false still reports the time spent, but leaves the cost estimate alone
+    private void recordStage(String stage, long startNanos, boolean sample) {
+        long nanos = System.nanoTime() - startNanos;
+        if (sample) stageCostMs.merge(stage, nanos / 1_000_000L, (old, now) -> (old * 3 + now) / 4);
+        java.util.Map<String, Double> timings = stageTimings.get();
+        if (timings != null) timings.merge(stage, nanos / 1e6, Double::sum);
+    }
+
+    // Fast failure once the budget is gone; keeps the unverified suggestion (if any) for manual review.
+    private HealResult outOfBudget(HealDeadline deadline, String stage, HealResult partial) {
+        HealResult r = partial != null ? partial : new HealResult(null, null, 0.0d, null);
+        r.decision = "MANUAL_REVIEW_DEADLINE";
+        r.reason = "heal budget of " + deadline.budgetMs() + " ms exhausted before " + stage
+                + " (elapsed " + deadline.elapsedMs() + " ms)";
+        logger.warn("HEAL_BUDGET: {}", r.reason);
+        return r;
+    }
 
     private static String safe(String s) {
         return s == null ? "" : s.trim();
@@ -316,8 +874,12 @@ public class SelfHealingEngine {
     }
 
     private int countMatches(String xp) {
+        return countMatches(java.util.List.of(), xp);
+    }
+
+    private int countMatches(List<String> scopePath, String xp) {
         try {
-            return driver.findElements(By.xpath(xp)).size();
+            return DomProbe.count(driver, scopePath, xp);
         } catch (Exception e) {
             return 0;
         }
@@ -327,12 +889,8 @@ public class SelfHealingEngine {
     private HealResult domFallback(String oldXpath) {
         if (oldXpath == null || oldXpath.isBlank()) return null;
 
-        // Extract a quoted hint (works for @placeholder='Username', contains(text(),'Widgets'), normalize-space()='X', etc.)
-        java.util.regex.Matcher m =
-                java.util.regex.Pattern.compile("'([^']{2,60})'").matcher(oldXpath);
-        if (!m.find()) return null;
-
-        String hint = m.group(1).trim();
+        // Quoted hint (works for @placeholder='Username', contains(text(),'Widgets'), normalize-space()='X', etc.)
+        String hint = LocatorDescriptor.parse(oldXpath).firstLiteral(2, 60);
         if (hint.isBlank()) return null;
 
         String[] tries = new String[] {
@@ -349,81 +907,12 @@ public class SelfHealingEngine {
         return null;
     }
 
-    private String inferTagFromXpath(String xpath) {
-        // Simple heuristic: //input..., //button..., //span..., etc.
-        if (xpath == null) return "";
-        String x = xpath.trim();
-        if (x.startsWith("//")) {
-            String after = x.substring(2);
-            int end = after.indexOf('[');
-            String tag = (end > 0 ? after.substring(0, end) : after).trim();
-            // ignore wildcard
-            return "*".equals(tag) ? "" : tag;
-        }
-        return "";
-    }
-
-    private String extractBestHintFromXpath(String xpath) {
-        // Grab first quoted literal: placeholder/text/id/name/class etc.
-        if (xpath == null) return "";
-        java.util.regex.Matcher m = java.util.regex.Pattern.compile("'([^']+)'|\"([^\"]+)\"").matcher(xpath);
-        if (m.find()) return (m.group(1) != null ? m.group(1) : m.group(2));
-        return "";
-    }
-
-    private String extractIntentToken(String xpath) {
-        if (xpath == null) return "";
-
-        List<String> strong = List.of(
-                "password", "passcode", "pwd",
-                "username", "user", "userid",
-                "email", "mail",
-                "login", "signin", "sign-in",
-                "submit", "confirm",
-                "search", "find",
-                "qty", "quantity",
-                "cart", "basket"
-        );
-
-        java.util.regex.Matcher m = java.util.regex.Pattern.compile("'([^']+)'|\"([^\"]+)\"").matcher(xpath);
-        while (m.find()) {
-            String lit = (m.group(1) != null ? m.group(1) : m.group(2));
-            if (lit == null) continue;
-            String t = lit.trim().toLowerCase();
-            for (String k : strong) {
-                if (t.contains(k)) return k;
-            }
-        }
-        return "";
-    }
-
     private String normalizeIntent(String token) {
-        if (token == null) return "";
-        token = token.trim().toLowerCase();
-
-        // collapse synonyms to a canonical intent
-        return switch (token) {
-            // password synonyms
-            case "passcode", "pwd", "passwd", "pass", "pin" -> "password";
-
-            // username synonyms
-            case "user", "userid", "uname", "loginid" -> "username";
-
-            // login synonyms
-            case "signin", "sign-in", "signon", "logon" -> "login";
-
-            // email synonyms
-            case "mail", "e-mail", "emailaddress" -> "email";
-
-            // quantity synonyms
-            case "qty", "quant", "amount" -> "quantity";
-
-            default -> token;
-        };
+        return LocatorDescriptor.canonicalIntent(token);
     }
 
     private boolean intentMatches(String oldXpath, String healedXpath) {
-        String oldTok = normalizeIntent(extractIntentToken(oldXpath));
+        String oldTok = LocatorDescriptor.parse(oldXpath).canonicalIntent;
         if (oldTok.isBlank()) return true; // no intent extracted -> don't block
 
         // if healed xpath contains any synonym/canonical form, allow
@@ -440,18 +929,10 @@ public class SelfHealingEngine {
 
 
 
-    private boolean healedElementContainsToken(String healedXpath, String token) {
+    // blob = text + identifying attributes of the healed element (DomProbe.Verification.blob)
+    private boolean blobContainsToken(String blob, String token) {
         try {
-            WebElement e = driver.findElement(By.xpath(healedXpath));
-            String blob =
-                    (safe(e.getText()) + " " +
-                            safe(e.getAttribute("placeholder")) + " " +
-                            safe(e.getAttribute("aria-label")) + " " +
-                            safe(e.getAttribute("name")) + " " +
-                            safe(e.getAttribute("id")) + " " +
-                            safe(e.getAttribute("data-testid")) + " " +
-                            safe(e.getAttribute("data-test")) + " " +
-                            safe(e.getAttribute("data-qa"))).toLowerCase();
+            if (blob == null) return false;
             String canon = normalizeIntent(token);
 
             // allow canonical and known synonyms
@@ -477,37 +958,19 @@ public class SelfHealingEngine {
         }
     }
 
-    private boolean isAllowedForAction(String action, WebElement e) {
+    private boolean isAllowedForAction(String action, DomProbe.Verification e) {
         // Candidate quality is determined by the ML model, not by tag filtering.
         return true;
     }
 
-    private boolean fuzzyTokenMatch(String haystack, String needle) {
-        haystack = normalizeTokens(haystack);
-        needle = normalizeTokens(needle);
-
-        if (needle.isBlank()) return true;
-        if (haystack.contains(needle)) return true;
-
-        java.util.Set<String> h = new java.util.HashSet<>(java.util.Arrays.asList(haystack.split(" ")));
-        java.util.Set<String> n = new java.util.HashSet<>(java.util.Arrays.asList(needle.split(" ")));
-
-        n.removeIf(t -> t.length() < 3);
-        if (n.isEmpty()) return true;
-
-        int hit = 0;
-        for (String t : n) if (h.contains(t)) hit++;
-
-        double overlap = (double) hit / (double) n.size();
-        return overlap >= 0.6; // tune 0.5-0.7
+    // fuzzyTokenMatch / normalizeTokens / normalizeHint / anyCandidateContainsToken / attributeFallback /
+    // filterByTagGroup are package-private so the JMH benchmarks (src/jmh/java) can call them directly
+    boolean fuzzyTokenMatch(String haystack, String needle) {
+        return TextSimilarity.fuzzyContains(normalizeTokens(haystack), null, normalizeTokens(needle));
     }
 
-    private String normalizeTokens(String s) {
-        if (s == null) return "";
-        return s.toLowerCase()
-                .replaceAll("[^a-z0-9 ]", " ")
-                .replaceAll("\\s+", " ")
-                .trim();
+    String normalizeTokens(String s) {
+        return TextSimilarity.norm(s);
     }
 
     private String actionSelector(String actionName, String expectedTag) {
@@ -516,48 +979,37 @@ public class SelfHealingEngine {
     }
 
 
-    private boolean anyCandidateContainsToken(List<HealDTO.Candidate> candidates, String token) {
+    boolean anyCandidateContainsToken(List<HealDTO.Candidate> candidates, String token) {
         if (candidates == null || candidates.isEmpty()) return false;
         String canon = normalizeIntent(token);
         String needle = normalizeTokens(canon);
 
-        for (HealDTO.Candidate c : candidates) {
-            String blob = (
-                    safe(c.text) + " " +
-                            safe(c.ariaLabel) + " " +
-                            safe(c.placeholder) + " " +
-                            safe(c.name) + " " +
-                            safe(c.id) + " " +
-                            safe(c.dataTestId) + " " +
-                            safe(c.xpath)
-            ).toLowerCase();
-
-            if (fuzzyTokenMatch(blob, needle)) return true;
-
-            // synonyms
-            if ("password".equals(canon)) {
-                if (fuzzyTokenMatch(blob, "passcode") || fuzzyTokenMatch(blob, "pwd")) return true;
-            }
-            if ("username".equals(canon)) {
-                if (fuzzyTokenMatch(blob, "user") || fuzzyTokenMatch(blob, "userid")) return true;
-            }
-            if ("login".equals(canon)) {
-                if (fuzzyTokenMatch(blob, "signin") || fuzzyTokenMatch(blob, "sign-in")) return true;
-            }
-            if ("email".equals(canon)) {
-                if (fuzzyTokenMatch(blob, "mail")) return true;
+        // synonyms accepted for the canonical intent
+        List<String> synonyms = switch (canon) {
+            case "password" -> List.of("passcode", "pwd");
+            case "username" -> List.of("user", "userid");
+            case "login" -> List.of("signin", "sign in");
+            case "email" -> List.of("mail");
+            default -> List.of();
+        };
+
+        // blobs are normalised once per candidate list and shared with the other text checks
+        CandidateTextIndex index = CandidateTextIndex.of(candidates);
+        for (int i = 0; i < index.size(); i++) {
+            String blob = index.intentBlob(i);
+            java.util.Set<String> tokens = index.intentTokens(i);
+            if (TextSimilarity.fuzzyContains(blob, tokens, needle)) return true;
+            for (String syn : synonyms) {
+                if (TextSimilarity.fuzzyContains(blob, tokens, syn)) return true;
             }
         }
         return false;
     }
 
 
-    private String normalizeHint(String raw) {
-        if (raw == null) return "";
-        String s = raw.trim().toLowerCase();
-
+    String normalizeHint(String raw) {
         // convert separators into spaces
-        s = s.replaceAll("[^a-z0-9]+", " ").replaceAll("\\s+", " ").trim();
+        String s = TextSimilarity.norm(raw);
 
         // canonicalize each token using the same synonym collapsing
         String[] parts = s.split(" ");
@@ -569,19 +1021,17 @@ public class SelfHealingEngine {
         return out.toString().trim();
     }
 
-    private HealResult attributeFallback(String oldXpath, List<HealDTO.Candidate> candidates) {
-        if (oldXpath == null || candidates == null || candidates.isEmpty()) return null;
-
-        java.util.regex.Matcher m = java.util.regex.Pattern
-                .compile("(?:contains\\(\\s*@((?:data-testid|data-test|data-qa|id|name|placeholder))\\s*,\\s*['\"]([^'\"]+)['\"]\\s*\\)|@((?:data-testid|data-test|data-qa|id|name|placeholder))\\s*=\\s*['\"]([^'\"]+)['\"])")
-                .matcher(oldXpath);
+    private static final java.util.Set<String> FALLBACK_ATTRIBUTES =
+            java.util.Set.of("data-testid", "data-test", "data-qa", "id", "name", "placeholder");
 
-        if (!m.find()) return null;
+    HealResult attributeFallback(String oldXpath, List<HealDTO.Candidate> candidates) {
+        if (oldXpath == null || candidates == null || candidates.isEmpty()) return null;
 
-        String attr = (m.group(1) != null ? m.group(1) : m.group(3));
-        String val  = (m.group(2) != null ? m.group(2) : m.group(4));
+        LocatorDescriptor.Predicate p = LocatorDescriptor.parse(oldXpath).firstAttribute(FALLBACK_ATTRIBUTES);
+        if (p == null) return null;
 
-        if (attr == null || val == null) return null;
+        String attr = p.attribute();
+        String val  = p.literal;
 
         attr = attr.trim().toLowerCase();
         val  = val.trim().toLowerCase();
@@ -615,41 +1065,37 @@ public class SelfHealingEngine {
 
         if (best == null || best.xpath == null || best.xpath.trim().isEmpty()) return null;
 
-        int matches = countMatches(best.xpath);
+        int matches = countMatches(best.scopePath, best.xpath);
         if (matches == 1) {
-            return new HealResult(By.xpath(best.xpath), best.xpath, 1.0d, "AUTO_HEAL_ATTR_FALLBACK");
+            return scoped(new HealResult(By.xpath(best.xpath), best.xpath, 1.0d, "AUTO_HEAL_ATTR_FALLBACK"), best.scopePath);
         }
         return null;
     }
 
      // Extracts attribute values from XPath predicates and populates OldElement fields.
 
-    private void enrichOldElementFromXpath(HealDTO.OldElement old, String xpath) {
+    // = / contains() / starts-with() all count, as with the old "@attr\s*[=,]" regex — a prefix is still
+    // the best hint the ranker gets for that attribute
+    static void enrichOldElementFromXpath(HealDTO.OldElement old, String xpath) {
         if (xpath == null || xpath.isBlank()) return;
-        try {
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(
-                    "@(data-testid|data-test|data-qa|id|name|placeholder|aria-label|type|role|title|value)" +
-                            "\\s*[=,]\\s*['\"]([^'\"]{1,120})['\"]",
-                    java.util.regex.Pattern.CASE_INSENSITIVE
-            );
-            java.util.regex.Matcher m = p.matcher(xpath);
-            while (m.find()) {
-                String attr = m.group(1).trim().toLowerCase();
-                String val  = m.group(2).trim();
-                switch (attr) {
-                    case "id"                          -> old.id          = val;
-                    case "name"                        -> old.name        = val;
-                    case "placeholder"                 -> old.placeholder = val;
-                    case "aria-label"                  -> old.ariaLabel   = val;
-                    case "type"                        -> old.type        = val;
-                    case "role"                        -> old.role        = val;
-                    case "title"                       -> old.title       = val;
-                    case "value"                       -> old.value       = val;
-                    case "data-testid", "data-test",
-                         "data-qa"                    -> old.dataTestId  = val;
-                }
+        for (LocatorDescriptor.Predicate p : LocatorDescriptor.parse(xpath).predicates) {
+            if (!p.isAttribute()) continue;
+            String val = p.literal.trim();
+            if (val.isEmpty() || val.length() > 120) continue;
+            switch (p.attribute()) {
+                case "id"                          -> old.id          = val;
+                case "name"                        -> old.name        = val;
+                case "placeholder"                 -> old.placeholder = val;
+                case "aria-label"                  -> old.ariaLabel   = val;
+                case "type"                        -> old.type        = val;
+                case "role"                        -> old.role        = val;
+                case "title"                       -> old.title       = val;
+                case "value"                       -> old.value       = val;
+                case "data-testid", "data-test",
+                     "data-qa"                    -> old.dataTestId  = val;
+                default                            -> { }
             }
-        } catch (Exception ignored) {}
+        }
     }
 
     private boolean containsAllTokens(String candN, String valN) {
@@ -679,7 +1125,14 @@ public class SelfHealingEngine {
                     java.util.Map.entry("h3",     java.util.List.of("h1","h2","h3","h4","h5","h6","div","span"))
             );
 
-    private List<HealDTO.Candidate> filterByTagGroup(
+    // Same tiers as filterByTagGroup, for the extraction script; null when that filter would keep everything.
+    static CandidateExtractor.TagFilter tagFilter(String originalTag) {
+        if (originalTag == null || originalTag.isBlank()) return null;
+        java.util.List<String> group = TAG_GROUPS.get(originalTag.toLowerCase());
+        return group == null ? null : new CandidateExtractor.TagFilter(originalTag, group);
+    }
+
+    List<HealDTO.Candidate> filterByTagGroup(
             List<HealDTO.Candidate> candidates, String originalTag) {
 
         if (originalTag == null || originalTag.isBlank() || candidates == null)
@@ -716,103 +1169,39 @@ public class SelfHealingEngine {
 
     //clean the candidate text before comparison
     private String cleanCandidateText(String rawText, String id, String dataTestId) {
-        String text = rawText == null ? "" : rawText.trim();
-        java.util.List<String> suffixes = new java.util.ArrayList<>();
-        if (id != null && !id.trim().isEmpty())             suffixes.add(id.trim());
-        if (dataTestId != null && !dataTestId.trim().isEmpty()) suffixes.add(dataTestId.trim());
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            for (String suffix : suffixes) {
-                if (!suffix.isEmpty() && text.endsWith(" " + suffix)) {
-                    text = text.substring(0, text.length() - suffix.length() - 1).trim();
-                    changed = true;
-                }
-            }
-        }
-        return text;
+        return CandidateTextIndex.cleanText(rawText, id, dataTestId);
     }
 
 
-    //Determines whether the given XPath expression is text-based.
-    private boolean isTextBasedXpath(String xp) {
-        if (xp == null) return false;
-        String lower = xp.toLowerCase();
-        return lower.contains("text()=") || lower.contains("text(),'") ||
-                lower.contains("text()=\"") || lower.contains("contains(text()");
-    }
-
-    //Extracts the literal text value from a text-based XPath expression
-    private String extractTextFromXpath(String xp) {
-        if (xp == null) return "";
-        java.util.regex.Matcher m1 = java.util.regex.Pattern
-                .compile("contains\\(text\\(\\)\\s*,\\s*['\"]([^'\"]+)['\"]")
-                .matcher(xp);
-        if (m1.find()) return m1.group(1);
-        java.util.regex.Matcher m2 = java.util.regex.Pattern
-                .compile("text\\(\\)\\s*=\\s*['\"]([^'\"]+)['\"]")
-                .matcher(xp);
-        if (m2.find()) return m2.group(1);
-        return "";
-    }
-
     //Attempts to repair a broken text-based XPath by rewriting it using semantically similar text from candidate elements.
     private HealResult tryRewriteTextLocator(String oldXpath, List<HealDTO.Candidate> candidates) {
-        String oldText = extractTextFromXpath(oldXpath);
+        LocatorDescriptor desc = LocatorDescriptor.parse(oldXpath);
+        String oldText = desc.textLiteral();
         if (oldText.isEmpty() || candidates == null || candidates.isEmpty()) return null;
         try {
-            List<WebElement> existing = driver.findElements(By.xpath(oldXpath));
-            if (!existing.isEmpty()) return null;
+            if (DomProbe.count(driver, oldXpath) > 0) return null;
         } catch (Exception ignored) {}
-        String normOld = norm(oldText);
-        HealDTO.Candidate best = null;
-        double bestSim = 0.55;
-        for (HealDTO.Candidate c : candidates) {
-            String cText = cleanCandidateText(safe(c.text), safe(c.id), safe(c.dataTestId));
-            if (cText.isEmpty()) continue;
-            double sim = seqSim(normOld, norm(cText));
-            if (sim > bestSim) { bestSim = sim; best = c; }
-        }
-        if (best == null) return null;
-        String newText = cleanCandidateText(safe(best.text), safe(best.id), safe(best.dataTestId));
-        String tag = oldXpath.replaceAll("^//([a-zA-Z*]+).*", "$1");
-        if (tag.equals(oldXpath)) tag = "*";
-        String newXpath = oldXpath.toLowerCase().contains("contains(text()")
-                ? "//" + tag + "[contains(text(),'" + newText.replace("'", "\\'") + "')]"
-                : "//" + tag + "[text()='" + newText.replace("'", "\\'") + "']";
+        String normOld = TextSimilarity.norm(oldText);
+        // n-gram index: exact similarity only for candidates that can still beat the best match
+        CandidateTextIndex index = CandidateTextIndex.of(candidates);
+        int best = index.bestTextMatch(normOld, 0.55);
+        if (best < 0) return null;
+        double bestSim = TextSimilarity.seqSim(normOld, TextSimilarity.norm(index.rewriteText(best)));
+        String newText = index.rewriteText(best);
+        String tag = desc.nodeTest.isEmpty() ? "*" : desc.nodeTest;
+        // inside an iframe / shadow root the rewritten xpath is relative to that root, like the candidate's own
+        List<String> scope = candidates.get(best).scopePath;
+        String newXpath = (scope.isEmpty() ? "//" : ".//") + tag + (desc.textContains()
+                ? "[contains(text(),'" + newText.replace("'", "\\'") + "')]"
+                : "[text()='" + newText.replace("'", "\\'") + "']");
         try {
-            if (driver.findElements(By.xpath(newXpath)).isEmpty()) return null;
+            if (DomProbe.count(driver, scope, newXpath) == 0) return null;
         } catch (Exception e) { return null; }
         logger.info("TEXT_REWRITE: oldText='{}' → newText='{}' sim={} xpath='{}'",
                 oldText, newText, String.format("%.3f", bestSim), newXpath);
-        return new HealResult(By.xpath(newXpath), newXpath, 0.95, "AUTO_HEAL_TEXT_REWRITE");
-    }
-
-    //Computes sequence similarity between two strings using
-    private double seqSim(String a, String b) {
-        if (a == null || b == null) return 0.0;
-        if (a.isEmpty() && b.isEmpty()) return 1.0;
-        if (a.isEmpty() || b.isEmpty()) return 0.0;
-        int la = a.length(), lb = b.length();
-        int[][] dp = new int[la + 1][lb + 1];
-        for (int i = 1; i <= la; i++)
-            for (int j = 1; j <= lb; j++)
-                dp[i][j] = a.charAt(i-1) == b.charAt(j-1)
-                        ? dp[i-1][j-1] + 1 : Math.max(dp[i-1][j], dp[i][j-1]);
-        return 2.0 * dp[la][lb] / (la + lb);
+        return scoped(new HealResult(By.xpath(newXpath), newXpath, 0.95, "AUTO_HEAL_TEXT_REWRITE"), scope);
     }
 
-    //Normalizes a string for comparison
-    private String norm(String s) {
-        if (s == null) return "";
-        return s.toLowerCase().replaceAll("[^a-z0-9]+", " ").trim();
-    }
-
-    //Checks whether the given XPath is an absolute positional XPath.
-    private boolean isAbsolutePositionalXpath(String xp) {
-        if (xp == null) return false;
-        return xp.startsWith("//html[1]/body[1]/");
-    }
 
 
 }
@@ -0,0 +1,117 @@
+package com.fyp.qa.healing;
+
+// String similarity helpers shared by the engine's text rewrite and the local ranker.
+final class TextSimilarity {
+
+    private TextSimilarity() {}
+
+    // two LCS rows, reused per thread — seqSim runs once per candidate, so no per-call table
+    private static final ThreadLocal<int[]> LCS_ROWS = ThreadLocal.withInitial(() -> new int[2 * 128]);
+
+    //Computes sequence similarity between two strings using LCS: 2*LCS / (len a + len b)
+    static double seqSim(String a, String b) {
+        if (a == null || b == null) return 0.0;
+        if (a.isEmpty() && b.isEmpty()) return 1.0;
+        if (a.isEmpty() || b.isEmpty()) return 0.0;
+        return 2.0 * lcs(a, b) / (a.length() + b.length());
+    }
+
+    // Length of the longest common subsequence, O(len a * len b) time, O(min len) space.
+    static int lcs(String a, String b) {
+        if (a.length() < b.length()) { String t = a; a = b; b = t; }   // columns = shorter string
+        int la = a.length(), lb = b.length();
+        int[] rows = LCS_ROWS.get();
+        if (rows.length < 2 * (lb + 1)) {
+            rows = new int[2 * (lb + 1)];
+            LCS_ROWS.set(rows);
+        }
+        int prev = 0, cur = lb + 1;
+        java.util.Arrays.fill(rows, 0, 2 * (lb + 1), 0);
+        for (int i = 1; i <= la; i++) {
+            char ca = a.charAt(i - 1);
+            rows[cur] = 0;
+            for (int j = 1; j <= lb; j++) {
+                rows[cur + j] = ca == b.charAt(j - 1)
+                        ? rows[prev + j - 1] + 1 : Math.max(rows[prev + j], rows[cur + j - 1]);
+            }
+            int t = prev; prev = cur; cur = t;
+        }
+        return rows[prev + lb];
+    }
+
+    //Normalizes a string for comparison: lower-case [a-z0-9] runs separated by single spaces
+    static String norm(String s) {
+        if (s == null) return "";
+        if (isNormalized(s)) return s;
+        char[] out = new char[s.length()];
+        int n = 0;
+        boolean gap = false;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = Character.toLowerCase(s.charAt(i));
+            if ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9')) {
+                if (gap && n > 0) out[n++] = ' ';
+                out[n++] = ch;
+                gap = false;
+            } else {
+                gap = true;
+            }
+        }
+        return new String(out, 0, n);
+    }
+
+    private static boolean isNormalized(String s) {
+        int n = s.length();
+        if (n == 0) return true;
+        if (s.charAt(0) == ' ' || s.charAt(n - 1) == ' ') return false;
+        char last = 'a';
+        for (int i = 0; i < n; i++) {
+            char ch = s.charAt(i);
+            boolean ok = (ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9') || (ch == ' ' && last != ' ');
+            if (!ok) return false;
+            last = ch;
+        }
+        return true;
+    }
+
+    // Space-separated tokens of an already norm()-alised string.
+    static java.util.Set<String> tokenSet(String normalized) {
+        java.util.Set<String> out = new java.util.HashSet<>();
+        int start = 0;
+        for (int i = 0; i <= normalized.length(); i++) {
+            if (i == normalized.length() || normalized.charAt(i) == ' ') {
+                if (i > start) out.add(normalized.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return out;
+    }
+
+    // Intent-check containment on norm()-alised strings: needle is a substring of hay, or at least 60%
+    // of the needle's tokens (length >= 3) are hay tokens. hayTokens may be null (computed on demand).
+    static boolean fuzzyContains(String hay, java.util.Set<String> hayTokens, String needle) {
+        if (needle.isBlank()) return true;
+        if (hay.contains(needle)) return true;
+
+        int considered = 0, hit = 0;
+        java.util.Set<String> h = hayTokens;
+        for (String t : tokenSet(needle)) {
+            if (t.length() < 3) continue;
+            considered++;
+            if (h == null) h = tokenSet(hay);
+            if (h.contains(t)) hit++;
+        }
+        if (considered == 0) return true;
+        double overlap = (double) hit / (double) considered;
+        return overlap >= 0.6; // tune 0.5-0.7
+    }
+
+    // Jaccard overlap of the normalized whitespace tokens of a and b
+    static double tokenJaccard(String a, String b) {
+        java.util.Set<String> x = tokenSet(norm(a));
+        java.util.Set<String> y = tokenSet(norm(b));
+        if (x.isEmpty() || y.isEmpty()) return 0.0;
+        int inter = 0;
+        for (String t : x) if (y.contains(t)) inter++;
+        return (double) inter / (x.size() + y.size() - inter);
+    }
+}
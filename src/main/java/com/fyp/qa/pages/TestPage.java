@@ -14,23 +14,23 @@ public class TestPage extends TestBase {
 
 
     public void clickOnWidgets(){
-        webUI.click(widgetOption);
+        getWebUI().click(widgetOption);
     }
 
     public void clickOnElements(){
-        webUI.click(elements);
+        getWebUI().click(elements);
     }
 
     public void userNameInput(String userName){
-        webUI.sendKeys(userNameTxt,userName);
+        getWebUI().sendKeys(userNameTxt,userName);
     }
 
     public void passwordInput(String userName){
-        webUI.sendKeys(passwordTxt,userName);
+        getWebUI().sendKeys(passwordTxt,userName);
     }
 
     public void clickLoginBtn(){
-        webUI.click(loginBtn);
+        getWebUI().click(loginBtn);
     }
 
 }
@@ -0,0 +1,52 @@
+import com.fyp.qa.base.TestBase;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+// Runs N browsers at once (testng-parallel.xml / -Pparallel) — every worker thread must get its own driver.
+// With -Ddriver_pool_size>0 a later invocation may get a browser an earlier one released, so only
+// drivers that are in use right now must be distinct.
+public class ParallelSessionsTest extends TestBase {
+
+    private static final Set<WebDriver> LIVE = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @DataProvider(name = "sessions", parallel = true)
+    public Object[][] sessions() {
+        int n = Integer.getInteger("parallel.browsers", 4);
+        Object[][] rows = new Object[n][];
+        for (int i = 0; i < n; i++) rows[i] = new Object[] { i };
+        return rows;
+    }
+
+    @BeforeMethod
+    public void setup() {
+        initialization();
+    }
+
+    @Test(dataProvider = "sessions")
+    public void eachThreadHasItsOwnBrowser(int session) {
+        WebDriver driver = getDriver();
+        Assert.assertNotNull(driver, "no browser for " + Thread.currentThread().getName());
+        synchronized (LIVE) {
+            Assert.assertTrue(LIVE.add(driver), "driver shared between threads");
+        }
+        Assert.assertEquals(driver.getTitle(), "Swag Labs");
+        System.out.println(">>> session " + session + " on " + Thread.currentThread().getName());
+    }
+
+    @AfterMethod
+    public void teardown() {
+        WebDriver driver = getDriver();
+        synchronized (LIVE) {
+            LIVE.remove(driver);
+        }
+        closeAllBrowsers();
+    }
+}
@@ -19,7 +19,7 @@ public class TestCase1 extends TestBase {
     @Test
     public void VerifyTextInWidgetTest(){
 
-        softAssert.assertEquals(driver.getTitle(),"DEMOQA", "Title should contain DEMOQA");
+        softAssert.assertEquals(getDriver().getTitle(),"DEMOQA", "Title should contain DEMOQA");
         System.out.println(">>> TEST START");
         TestFunction.navigateToWidgets();
         TestFunction.clickOnElements();
@@ -19,7 +19,7 @@ public class TestCase2 extends TestBase {
     @Test
     public void VerifyTextInWidgetTest(){
 
-        softAssert.assertEquals(driver.getTitle(),"Swag Labs", "Title should contain DEMOQA");
+        softAssert.assertEquals(getDriver().getTitle(),"Swag Labs", "Title should contain DEMOQA");
         System.out.println(">>> TEST START");
         TestFunction.userNameInput("standard_user");
         TestFunction.passwordInput("secret_sauce");
@@ -0,0 +1,167 @@
+package com.fyp.qa.base;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// DriverPool against stub sessions — no browser needed.
+public class DriverPoolTest {
+
+    // A fake session: healthy, resettable unless failReset is set; records quit().
+    private static final class Stub {
+        volatile boolean quit;
+        volatile boolean failReset;
+        final WebDriver driver;
+
+        Stub() {
+            driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { WebDriver.class, JavascriptExecutor.class }, (p, m, a) -> {
+                        switch (m.getName()) {
+                            case "getWindowHandles": return Set.of("main");
+                            case "executeScript": return "return 1;".equals(a[0]) ? 1L : null;
+                            case "switchTo": return proxy(WebDriver.TargetLocator.class, p);
+                            case "manage": return proxy(WebDriver.Options.class, p);
+                            case "get":
+                                if (failReset) throw new WebDriverException("tab crashed");
+                                return null;
+                            case "quit": quit = true; return null;
+                            case "equals": return p == a[0];
+                            case "hashCode": return System.identityHashCode(p);
+                            case "toString": return "Stub@" + System.identityHashCode(p);
+                            default: return null;
+                        }
+                    });
+        }
+
+        // switchTo().window(..) hands the driver back; everything else is a no-op
+        private static Object proxy(Class<?> type, Object driver) {
+            return Proxy.newProxyInstance(Stub.class.getClassLoader(), new Class<?>[] { type },
+                    (p, m, a) -> m.getReturnType().isInstance(driver) ? driver : null);
+        }
+    }
+
+    // the pool's session factory; one per test so late background launches can't leak between tests
+    private static final class Stubs {
+        final List<Stub> created = new CopyOnWriteArrayList<>();
+
+        WebDriver launch() {
+            Stub s = new Stub();
+            created.add(s);
+            return s.driver;
+        }
+
+        Stub of(WebDriver d) {
+            for (Stub s : created) if (s.driver == d) return s;
+            throw new AssertionError("not a stub: " + d);
+        }
+    }
+
+    @Test
+    public void leaseFallsBackToColdStartWhenNoneIsWarm() throws Exception {
+        Stubs stubs = new Stubs();
+        CountDownLatch launchers = new CountDownLatch(1);
+        DriverPool pool = new DriverPool(() -> {
+            // background launches hang (slow Chrome start); the caller's own cold start does not
+            if (Thread.currentThread().getName().startsWith("driver-pool-launcher")) {
+                try {
+                    launchers.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return stubs.launch();
+        }, 1);
+        try {
+            long start = System.nanoTime();
+            WebDriver d = pool.lease(Duration.ofMillis(100));
+            long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assert.assertNotNull(d);
+            Assert.assertTrue(ms < 2000, "lease waited " + ms + " ms");
+            Assert.assertEquals(stubs.created.size(), 1);
+            Assert.assertEquals(pool.idleCount(), 0);
+        } finally {
+            launchers.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void releaseBeyondSizeQuitsTheExtraSession() throws Exception {
+        Stubs stubs = new Stubs();
+        DriverPool pool = new DriverPool(stubs::launch, 1);
+        try {
+            awaitTrue(() -> pool.idleCount() == 1);
+            WebDriver warm = pool.lease(Duration.ofSeconds(1));
+            WebDriver cold = pool.lease(Duration.ofMillis(10));
+            Assert.assertNotSame(warm, cold);
+
+            pool.release(warm);
+            pool.release(cold);
+
+            Assert.assertFalse(stubs.of(warm).quit);
+            Assert.assertTrue(stubs.of(cold).quit);
+            Assert.assertEquals(pool.idleCount(), 1);
+            Assert.assertSame(pool.lease(Duration.ofSeconds(1)), warm);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void failedResetDiscardsAndReplacesTheSession() throws Exception {
+        Stubs stubs = new Stubs();
+        DriverPool pool = new DriverPool(stubs::launch, 1);
+        try {
+            awaitTrue(() -> pool.idleCount() == 1);
+            WebDriver d = pool.lease(Duration.ofSeconds(1));
+            stubs.of(d).failReset = true;
+
+            pool.release(d);
+
+            Assert.assertTrue(stubs.of(d).quit);
+            awaitTrue(() -> pool.idleCount() == 1);
+            Assert.assertEquals(stubs.created.size(), 2);
+            Assert.assertNotSame(pool.lease(Duration.ofSeconds(1)), d);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownQuitsIdleAndLeasedSessions() throws Exception {
+        Stubs stubs = new Stubs();
+        DriverPool pool = new DriverPool(stubs::launch, 2);
+        awaitTrue(() -> pool.idleCount() == 2);
+        WebDriver leased = pool.lease(Duration.ofSeconds(1));
+
+        pool.shutdown();
+
+        Assert.assertEquals(stubs.created.size(), 2);
+        for (Stub s : stubs.created) Assert.assertTrue(s.quit, s.driver + " still open");
+        Assert.assertEquals(pool.idleCount(), 0);
+
+        // a session handed back after shutdown is not parked again
+        pool.release(leased);
+        Assert.assertEquals(pool.idleCount(), 0);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) Assert.fail("condition not met within 5s");
+            Thread.sleep(10);
+        }
+    }
+}
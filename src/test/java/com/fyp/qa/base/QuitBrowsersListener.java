@@ -0,0 +1,16 @@
+package com.fyp.qa.base;
+
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+// Parallel suites leave one browser per worker thread open (teardown keeps the session for the
+// next method on that thread); close all of them once the suite is done.
+public class QuitBrowsersListener implements ISuiteListener {
+
+    @Override
+    public void onFinish(ISuite suite) {
+        int open = DriverContext.openSessions();
+        DriverContext.quitAll();
+        System.out.println(">>> SUITE " + suite.getName() + " closed " + open + " browser(s)");
+    }
+}
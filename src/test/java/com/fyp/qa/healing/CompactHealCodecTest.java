@@ -0,0 +1,100 @@
+package com.fyp.qa.healing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CompactHealCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void roundTripsEveryCandidateField() throws Exception {
+        HealDTO.Candidate c = new HealDTO.Candidate();
+        c.xpath = "//input[@id='pass']"; c.text = "Password"; c.tag = "input"; c.idx = 7;
+        c.ariaLabel = "aria"; c.id = "pass"; c.name = "password"; c.className = "form_input";
+        c.placeholder = "Password"; c.type = "password"; c.value = "secret"; c.dataTestId = "password";
+        c.role = "textbox"; c.title = "title"; c.labelText = "label"; c.parentText = "parent";
+        c.headingContext = "Login"; c.ancestorChain = "form>div"; c.domDepth = 12.5;
+        c.siblingBefore = "before"; c.siblingAfter = "after"; c.nearbyText = "nearby";
+        c.isVisible = false; c.isEnabled = false;
+        c.bboxX = 1.5; c.bboxY = -2.25; c.bboxW = 300; c.bboxH = 40.75;
+
+        HealDTO.Candidate back = roundTrip(request(List.of(c))).candidates.get(0);
+        Assert.assertEquals(mapper.writeValueAsString(back), mapper.writeValueAsString(c));
+    }
+
+    @Test
+    public void keepsNullsApartFromEmptyStrings() throws Exception {
+        HealDTO.Candidate c = new HealDTO.Candidate();
+        c.text = null;
+        c.role = null;
+        c.idx = null;
+        c.title = "";
+
+        HealDTO.HealRequest back = roundTrip(request(List.of(c)));
+        HealDTO.Candidate d = back.candidates.get(0);
+        Assert.assertNull(d.text);
+        Assert.assertNull(d.role);
+        Assert.assertNull(d.idx);
+        Assert.assertEquals(d.title, "");
+        Assert.assertEquals(d.xpath, "");
+        Assert.assertEquals(back.old.tag, "input");
+
+        Assert.assertTrue(roundTrip(new HealDTO.HealRequest(null, null)).candidates.isEmpty());
+    }
+
+    @Test
+    public void repeatedStringsAreSentOnce() throws Exception {
+        List<HealDTO.Candidate> page = new ArrayList<>();
+        String shared = "inventory_item_description ".repeat(10);   // longer than Smile's own shared-value limit
+        for (int i = 0; i < 50; i++) {
+            HealDTO.Candidate c = new HealDTO.Candidate("//div[" + i + "]", "item " + i, "div", i, "");
+            c.className = shared;
+            c.ancestorChain = shared;
+            page.add(c);
+        }
+        HealDTO.HealRequest req = request(page);
+        byte[] wire = encode(req);
+
+        Assert.assertEquals(occurrences(wire, "inventory_item_description".getBytes()), 10);
+        Assert.assertTrue(wire.length < mapper.writeValueAsBytes(req).length / 3,
+                "compact " + wire.length + " bytes vs json " + mapper.writeValueAsBytes(req).length);
+
+        HealDTO.HealRequest back = roundTrip(req);
+        Assert.assertEquals(back.candidates.size(), 50);
+        Assert.assertEquals(back.candidates.get(49).className, shared);
+        Assert.assertEquals(back.candidates.get(49).text, "item 49");
+        Assert.assertEquals(back.candidates.get(49).idx, Integer.valueOf(49));
+    }
+
+    private static HealDTO.HealRequest request(List<HealDTO.Candidate> candidates) {
+        return new HealDTO.HealRequest(LocalHealerServer.old("//input[@id='pass']", "password", "input",
+                "pass", "password", "password"), candidates);
+    }
+
+    private byte[] encode(HealDTO.HealRequest req) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompactHealCodec.encode(mapper, req, out);
+        return out.toByteArray();
+    }
+
+    private HealDTO.HealRequest roundTrip(HealDTO.HealRequest req) throws Exception {
+        return CompactHealCodec.decode(mapper, new ByteArrayInputStream(encode(req)));
+    }
+
+    private static int occurrences(byte[] data, byte[] needle) {
+        int n = 0;
+        outer:
+        for (int i = 0; i + needle.length <= data.length; i++) {
+            for (int k = 0; k < needle.length; k++) if (data[i + k] != needle[k]) continue outer;
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,64 @@
+package com.fyp.qa.healing;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class HealMetricsTest {
+
+    @BeforeMethod
+    public void clear() {
+        HealMetrics.reset();
+    }
+
+    @Test
+    public void percentilesPerStageActionAndDecision() {
+        for (int i = 1; i <= 100; i++) {
+            Map<String, Double> stages = new LinkedHashMap<>();
+            stages.put("extract", (double) i);
+            stages.put("api", 10.0 * i);
+            HealMetrics.recordHeal("click", "AUTO_HEAL_CONFIDENT", stages, 11.0 * i);
+        }
+        HealMetrics.recordHeal("sendKeys", "MANUAL_REVIEW", Map.of("extract", 3.0), 3.0);
+
+        HealMetrics.Row api = row("api", "click", "AUTO_HEAL_CONFIDENT");
+        Assert.assertEquals(api.count, 100);
+        Assert.assertEquals(api.p50, 500.0);
+        Assert.assertEquals(api.p95, 950.0);
+        Assert.assertEquals(api.p99, 990.0);
+        Assert.assertEquals(api.maxMs, 1000.0);
+        Assert.assertEquals(row("total", "click", "AUTO_HEAL_CONFIDENT").sumMs, 11.0 * 5050);
+        Assert.assertEquals(row("extract", "sendKeys", "MANUAL_REVIEW").count, 1);
+    }
+
+    @Test
+    public void exportsPrometheusAndJson() throws Exception {
+        HealMetrics.recordHeal("click", "AUTO_HEAL_CONFIDENT", Map.of("verify", 2.5), 4.0);
+
+        String prom = HealMetrics.toPrometheus();
+        Assert.assertTrue(prom.contains("# TYPE heal_stage_duration_ms summary"));
+        Assert.assertTrue(prom.contains(
+                "heal_stage_duration_ms{stage=\"verify\",action=\"click\",decision=\"AUTO_HEAL_CONFIDENT\",quantile=\"0.95\"} 2.5"), prom);
+        Assert.assertTrue(prom.contains("heal_total{action=\"click\",decision=\"AUTO_HEAL_CONFIDENT\"} 1"), prom);
+
+        Path dir = Files.createTempDirectory("heal-metrics");
+        Path json = dir.resolve("metrics.json");
+        HealMetrics.write(json);
+        Assert.assertTrue(Files.readString(json).contains("\"stage\" : \"verify\""));
+        Path txt = dir.resolve("metrics.prom");
+        HealMetrics.write(txt);
+        Assert.assertEquals(Files.readString(txt), prom);
+    }
+
+    private static HealMetrics.Row row(String stage, String action, String decision) {
+        for (HealMetrics.Row r : HealMetrics.snapshot()) {
+            if (r.stage.equals(stage) && r.action.equals(action) && r.decision.equals(decision)) return r;
+        }
+        throw new AssertionError("no series " + stage + "/" + action + "/" + decision);
+    }
+}
@@ -0,0 +1,87 @@
+package com.fyp.qa.healing;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+// HealerClient against the local stand-in service — no browser needed.
+public class HealerClientBatchTest {
+
+    private static HealDTO.BatchHealRequest loginBatch() {
+        return new HealDTO.BatchHealRequest(List.of(
+                LocalHealerServer.old("//input[@id='user-name']", "username", "input", "user-name", "username", "username"),
+                LocalHealerServer.old("//input[@id='pass']", "password", "input", "pass", "password", "password"),
+                LocalHealerServer.old("//button[@id='login']", "login", "button", "login", "", "login-button")),
+                LocalHealerServer.loginFormCandidates());
+    }
+
+    @Test
+    public void batchHealsEveryLocatorInOneRequest() throws Exception {
+        try (LocalHealerServer server = new LocalHealerServer()) {
+            List<HealDTO.HealResponse> results = new HealerClient(server.url()).healBatch(loginBatch());
+
+            Assert.assertEquals(results.size(), 3);
+            Assert.assertEquals(results.get(0).healed_xpath, "//input[@id='user-name-v2']");
+            Assert.assertEquals(results.get(1).healed_xpath, "//input[@id='pass-v2']");
+            Assert.assertEquals(results.get(2).healed_xpath, "//button[@id='login-btn']");
+            Assert.assertEquals(server.batchCalls.get(), 1);
+            Assert.assertEquals(server.healCalls.get(), 0);
+        }
+    }
+
+    @Test
+    public void batchFallsBackToSingleHealsWithoutBatchEndpoint() throws Exception {
+        try (LocalHealerServer server = new LocalHealerServer()) {
+            server.batchEnabled = false;
+            HealerClient client = new HealerClient(server.url());
+
+            List<HealDTO.HealResponse> results = client.healBatch(loginBatch());
+            Assert.assertEquals(results.get(1).healed_xpath, "//input[@id='pass-v2']");
+            Assert.assertEquals(server.healCalls.get(), 3);
+
+            // endpoint absence is remembered — no second 404
+            client.healBatch(loginBatch());
+            Assert.assertEquals(server.healCalls.get(), 6);
+            Assert.assertEquals(server.batchCalls.get(), 0);
+        }
+    }
+
+    @Test
+    public void gzipAndCompactBodiesFallBackToPlainJson() throws Exception {
+        HealDTO.HealRequest req = new HealDTO.HealRequest(
+                LocalHealerServer.old("//input[@id='pass']", "password", "input", "pass", "password", "password"),
+                LocalHealerServer.loginFormCandidates());
+        try (LocalHealerServer server = new LocalHealerServer()) {
+            Assert.assertEquals(new HealerClient(server.url(), true, true).heal(req).healed_xpath, "//input[@id='pass-v2']");
+
+            server.gzipEnabled = false;
+            server.compactEnabled = false;
+            Assert.assertEquals(new HealerClient(server.url(), true, true).heal(req).healed_xpath, "//input[@id='pass-v2']");
+        }
+    }
+
+    @Test
+    public void badRequestOnlyDowngradesEncodingWhenPlainJsonWorks() throws Exception {
+        HealDTO.HealRequest req = new HealDTO.HealRequest(
+                LocalHealerServer.old("//input[@id='pass']", "password", "input", "pass", "password", "password"),
+                LocalHealerServer.loginFormCandidates());
+        try (LocalHealerServer server = new LocalHealerServer()) {
+            // a genuinely bad request fails as plain JSON too — gzip / compact stay on
+            HealerClient client = new HealerClient(server.url(), true, true);
+            server.rejectAll = true;
+            Assert.expectThrows(java.io.IOException.class, () -> client.heal(req));
+            server.rejectAll = false;
+            client.heal(req);
+            Assert.assertTrue(server.lastGzip && server.lastCompact);
+
+            // a 400 that the plain resend fixes is an encoding problem — switched off for the rest of the run
+            server.encodingRejectStatus = 400;
+            server.gzipEnabled = false;
+            server.compactEnabled = false;
+            Assert.assertEquals(client.heal(req).healed_xpath, "//input[@id='pass-v2']");
+            client.heal(req);
+            Assert.assertFalse(server.lastGzip || server.lastCompact);
+        }
+    }
+}
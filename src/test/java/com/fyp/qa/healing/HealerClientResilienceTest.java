@@ -0,0 +1,68 @@
+package com.fyp.qa.healing;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+public class HealerClientResilienceTest {
+
+    private static HealDTO.HealRequest request() {
+        return new HealDTO.HealRequest(
+                LocalHealerServer.old("//input[@id='pass']", "password", "input", "pass", "password", "password"),
+                LocalHealerServer.loginFormCandidates());
+    }
+
+    @Test
+    public void sharedBreakerIsPerUrlAndSettings() {
+        CircuitBreaker a = CircuitBreaker.forName("http://healer.test/shared", 3, 30000);
+        Assert.assertSame(CircuitBreaker.forName("http://healer.test/shared", 3, 30000), a);
+        Assert.assertNotSame(CircuitBreaker.forName("http://healer.test/shared", 1, 30000), a);
+        Assert.assertNotSame(CircuitBreaker.forName("http://healer.test/shared", 3, 500), a);
+        Assert.assertNotSame(CircuitBreaker.forName("http://healer.test/other", 3, 30000), a);
+    }
+
+    @Test
+    public void breakerOpensAfterConsecutiveFailuresAndClosesOnProbe() throws Exception {
+        String url;
+        try (LocalHealerServer stopped = new LocalHealerServer()) {
+            url = stopped.url();   // port is free again once closed -> connection refused
+        }
+        RetryPolicy policy = new RetryPolicy(2, 10, 20, 2.0, 0.0, 500, 1000, 5000);
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, 200);
+        HealerClient client = new HealerClient(url, false, false, policy, breaker);
+
+        for (int i = 0; i < 2; i++) {
+            Assert.expectThrows(IOException.class, () -> client.heal(request()));
+        }
+        Assert.assertEquals(breaker.state(), CircuitBreaker.State.OPEN);
+
+        long start = System.currentTimeMillis();
+        IOException fast = Assert.expectThrows(IOException.class, () -> client.heal(request()));
+        Assert.assertTrue(fast.getMessage().contains("circuit open"), fast.getMessage());
+        Assert.assertTrue(System.currentTimeMillis() - start < 100);
+        Assert.assertEquals(breaker.snapshot().rejected, 1);
+
+        // after the open period one probe is allowed; a healthy service closes the breaker
+        Thread.sleep(250);
+        try (LocalHealerServer server = new LocalHealerServer()) {
+            HealerClient healthy = new HealerClient(server.url(), false, false, policy, breaker);
+            Assert.assertEquals(healthy.heal(request()).healed_xpath, "//input[@id='pass-v2']");
+        }
+        Assert.assertEquals(breaker.state(), CircuitBreaker.State.CLOSED);
+        Assert.assertEquals(breaker.snapshot().opened, 1);
+    }
+
+    @Test
+    public void backoffGrowsAndRespectsTotalDeadline() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 400, 2.0, 0.0, 500, 1000, 1000);
+        Assert.assertEquals(policy.delayMs(2), 100);
+        Assert.assertEquals(policy.delayMs(3), 200);
+        Assert.assertEquals(policy.delayMs(4), 400);
+        Assert.assertEquals(policy.delayMs(5), 400);
+
+        Assert.assertTrue(policy.canRetry(1, 0));
+        Assert.assertFalse(policy.canRetry(1, 950));   // the wait alone would pass the deadline
+        Assert.assertFalse(policy.canRetry(5, 0));     // out of attempts
+    }
+}
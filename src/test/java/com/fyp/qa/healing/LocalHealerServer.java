@@ -0,0 +1,126 @@
+package com.fyp.qa.healing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+// Stand-in for the Python healer service, backed by LocalRanker.
+// Speaks the same wire contract as the real one: POST /heal and POST /heal/batch, plain JSON,
+// gzip request bodies and the dictionary-coded content type. Each feature can be switched off
+// to exercise the client's fallbacks.
+public class LocalHealerServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LocalRanker ranker = new LocalRanker();
+
+    public boolean batchEnabled = true;
+    public boolean gzipEnabled = true;
+    public boolean compactEnabled = true;
+    // answer for a disabled encoding: 415, or 400 like a server that just fails the JSON decode
+    public int encodingRejectStatus = 415;
+    // 400 for every request, whatever its encoding (a genuinely bad request)
+    public boolean rejectAll = false;
+    public volatile boolean lastGzip;
+    public volatile boolean lastCompact;
+
+    public final AtomicInteger healCalls = new AtomicInteger();
+    public final AtomicInteger batchCalls = new AtomicInteger();
+
+    public LocalHealerServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/heal", this::handle);
+        server.start();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String path = ex.getRequestURI().getPath();
+            boolean batch = path.endsWith("/heal/batch");
+            if (!"POST".equals(ex.getRequestMethod()) || !(batch || path.endsWith("/heal"))
+                    || (batch && !batchEnabled)) {
+                ex.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            boolean gzip = "gzip".equals(ex.getRequestHeaders().getFirst("Content-Encoding"));
+            String contentType = String.valueOf(ex.getRequestHeaders().getFirst("Content-Type"));
+            boolean compact = contentType.startsWith(CompactHealCodec.CONTENT_TYPE);
+            lastGzip = gzip;
+            lastCompact = compact;
+            if (rejectAll) {
+                ex.sendResponseHeaders(400, -1);
+                return;
+            }
+            if ((gzip && !gzipEnabled) || (compact && !compactEnabled)) {
+                ex.sendResponseHeaders(encodingRejectStatus, -1);
+                return;
+            }
+
+            InputStream in = gzip ? new GZIPInputStream(ex.getRequestBody()) : ex.getRequestBody();
+            Object response;
+            if (batch) {
+                batchCalls.incrementAndGet();
+                HealDTO.BatchHealRequest req = mapper.readValue(in, HealDTO.BatchHealRequest.class);
+                HealDTO.BatchHealResponse resp = new HealDTO.BatchHealResponse();
+                resp.results = new ArrayList<>();
+                for (HealDTO.OldElement old : req.olds) {
+                    resp.results.add(ranker.heal(new HealDTO.HealRequest(old, req.candidates)));
+                }
+                response = resp;
+            } else {
+                healCalls.incrementAndGet();
+                HealDTO.HealRequest req = compact
+                        ? CompactHealCodec.decode(mapper, in)
+                        : mapper.readValue(in, HealDTO.HealRequest.class);
+                response = ranker.heal(req);
+            }
+
+            byte[] out = mapper.writeValueAsBytes(response);
+            ex.getResponseHeaders().set("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, out.length);
+            ex.getResponseBody().write(out);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    // small login-form page: username / password inputs and a submit button, plus filler siblings
+    static List<HealDTO.Candidate> loginFormCandidates() {
+        List<HealDTO.Candidate> out = new ArrayList<>();
+        out.add(new HealDTO.Candidate("//input[@id='user-name-v2']", "", "input", 0, "",
+                "user-name-v2", "username", "form-control", "Username", "text", "", "username"));
+        out.add(new HealDTO.Candidate("//input[@id='pass-v2']", "", "input", 1, "",
+                "pass-v2", "password", "form-control", "Password", "password", "", "password"));
+        out.add(new HealDTO.Candidate("//button[@id='login-btn']", "Login", "button", 2, "",
+                "login-btn", "", "btn btn-primary", "", "submit", "", "login-button"));
+        for (int i = 3; i < 20; i++) {
+            out.add(new HealDTO.Candidate("//a[" + i + "]", "Footer link " + i, "a", i, "",
+                    "", "", "footer-link", "", "", "", ""));
+        }
+        return out;
+    }
+
+    static HealDTO.OldElement old(String xpath, String text, String tag, String id, String name, String dataTestId) {
+        HealDTO.OldElement old = new HealDTO.OldElement(text, tag, xpath, "", 0);
+        old.id = id;
+        old.name = name;
+        old.dataTestId = dataTestId;
+        return old;
+    }
+}
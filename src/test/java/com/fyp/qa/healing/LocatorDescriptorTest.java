@@ -0,0 +1,68 @@
+package com.fyp.qa.healing;
+
+import org.openqa.selenium.By;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+public class LocatorDescriptorTest {
+
+    @Test
+    public void parsesAttributeAndTextPredicates() {
+        LocatorDescriptor d = LocatorDescriptor.parse("//input[@data-test='login-button' and contains(@class,'btn')]");
+        Assert.assertEquals(d.tag, "input");
+        Assert.assertEquals(d.literals, java.util.List.of("login-button", "btn"));
+        Assert.assertEquals(d.predicates.size(), 2);
+        Assert.assertEquals(d.predicates.get(0).match, LocatorDescriptor.Match.EQUALS);
+        Assert.assertEquals(d.predicates.get(0).attribute(), "data-test");
+        Assert.assertEquals(d.predicates.get(1).match, LocatorDescriptor.Match.CONTAINS);
+        Assert.assertEquals(d.canonicalIntent, "login");
+        Assert.assertFalse(d.isTextBased());
+
+        LocatorDescriptor t = LocatorDescriptor.parse("//div[contains(text(), \"Widg\")]");
+        Assert.assertTrue(t.isTextBased());
+        Assert.assertTrue(t.textContains());
+        Assert.assertEquals(t.textLiteral(), "Widg");
+        Assert.assertEquals(t.tag, "div");
+
+        LocatorDescriptor ns = LocatorDescriptor.parse("//*[normalize-space(.)='Sign in']");
+        Assert.assertEquals(ns.tag, "");
+        Assert.assertEquals(ns.nodeTest, "*");
+        Assert.assertEquals(ns.predicates.get(0).target, "normalize-space()");
+        Assert.assertFalse(ns.isTextBased());
+    }
+
+    @Test
+    public void usesLastStepAndIgnoresNestedSteps() {
+        LocatorDescriptor d = LocatorDescriptor.parse("(//form[@id='login']//button[text()='Go'])[1]");
+        Assert.assertEquals(d.tag, "button");
+        Assert.assertEquals(d.textLiteral(), "Go");
+        Assert.assertEquals(d.firstAttribute(Set.of("id")).literal, "login");
+
+        LocatorDescriptor axis = LocatorDescriptor.parse("//label[text()='User']/following-sibling::input");
+        Assert.assertEquals(axis.tag, "input");
+        Assert.assertEquals(axis.canonicalIntent, "username");
+    }
+
+    @Test
+    public void startsWithAndContainsStillFillTheOldElement() {
+        LocatorDescriptor d = LocatorDescriptor.parse("//input[starts-with(@id,'user') and contains(@name,'login')]");
+        Assert.assertEquals(d.predicates.get(0).match, LocatorDescriptor.Match.STARTS_WITH);
+        Assert.assertEquals(d.predicates.get(0).attribute(), "id");
+
+        HealDTO.OldElement old = new HealDTO.OldElement("", "input", "", "", 0);
+        SelfHealingEngine.enrichOldElementFromXpath(old, "//input[starts-with(@id,'user') and contains(@name,'login')]");
+        Assert.assertEquals(old.id, "user");
+        Assert.assertEquals(old.name, "login");
+    }
+
+    @Test
+    public void cachesPerXpathAndRejectsOtherLocators() {
+        By by = By.xpath("//input[@placeholder='Username']");
+        Assert.assertSame(LocatorDescriptor.of(by), LocatorDescriptor.parse("//input[@placeholder='Username']"));
+        Assert.assertNull(LocatorDescriptor.of(By.id("user")));
+        Assert.assertEquals(LocatorDescriptor.parse(null).literals.size(), 0);
+        Assert.assertEquals(LocatorDescriptor.parse("//input[@id='pass").firstLiteral(), "pass");   // unterminated literal
+    }
+}
@@ -0,0 +1,77 @@
+package com.fyp.qa.healing;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ScopedLocatorTest {
+
+    @Test
+    public void topDocumentStaysPlainXPath() {
+        Assert.assertEquals(ScopedLocator.of(List.of(), "//button[@id='save']"), By.xpath("//button[@id='save']"));
+        Assert.assertTrue(ScopedLocator.of(List.of("//my-app[1]"), "./button[1]") instanceof ScopedLocator);
+    }
+
+    @Test
+    public void switchesIntoEachFrameOnThePath() {
+        WebElement frame = element();
+        WebElement target = element();
+        List<String> calls = new ArrayList<>();
+        List<Object> pathsSeen = new ArrayList<>();
+
+        WebDriver.TargetLocator switchTo = proxy(WebDriver.TargetLocator.class, (p, m, a) -> {
+            calls.add(m.getName());
+            return null;
+        });
+        // first script run stops at the iframe (path step 1), the second one — inside it — finds the element
+        WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { WebDriver.class, JavascriptExecutor.class }, (p, m, a) -> {
+                    switch (m.getName()) {
+                        case "switchTo": return switchTo;
+                        case "executeScript":
+                            pathsSeen.add(((Object[]) a[1])[0]);   // executeScript(script, path, xpath)
+                            return pathsSeen.size() == 1 ? Map.of("frame", frame, "step", 1L) : List.of(target);
+                        default: return null;
+                    }
+                });
+
+        By by = ScopedLocator.of(List.of("//*[@id='pay']", "//html[1]/body[1]/card-form[1]"), ".//*[@id='card']");
+        Assert.assertEquals(by.findElements(driver), List.of(target));
+        Assert.assertEquals(calls, List.of("defaultContent", "frame"));
+        Assert.assertEquals(pathsSeen, List.of(
+                List.of("//*[@id='pay']", "//html[1]/body[1]/card-form[1]"),
+                List.of("//html[1]/body[1]/card-form[1]")));
+        Assert.assertEquals(by.toString(),
+                "By.scopedXpath: //*[@id='pay'] >> //html[1]/body[1]/card-form[1] >> .//*[@id='card']");
+    }
+
+    @Test
+    public void scopedPositionalPathsAreBrittle() {
+        Assert.assertTrue(DomProbe.isAbsolutePositional("./div[1]/button[1]"));
+        Assert.assertTrue(DomProbe.isAbsolutePositional(".//html[1]/body[1]/label[1]"));
+        Assert.assertFalse(DomProbe.isAbsolutePositional(".//*[@id='card']"));
+    }
+
+    private static WebElement element() {
+        return proxy(WebElement.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "equals": return p == a[0];
+                case "hashCode": return System.identityHashCode(p);
+                default: return null;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler h) {
+        return (T) Proxy.newProxyInstance(ScopedLocatorTest.class.getClassLoader(), new Class<?>[] { type }, h);
+    }
+}
@@ -0,0 +1,77 @@
+package com.fyp.qa.healing;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TextSimilarityTest {
+
+    private static final String ALPHABET = "abcde fgh-ABC_12 é\t";
+
+    @Test
+    public void rollingLcsMatchesFullTable() {
+        Random rnd = new Random(7);
+        for (int n = 0; n < 2000; n++) {
+            String a = random(rnd, rnd.nextInt(40));
+            String b = random(rnd, rnd.nextInt(40));
+            Assert.assertEquals(TextSimilarity.seqSim(a, b), tableSeqSim(a, b), 1e-12, a + " | " + b);
+        }
+        Assert.assertEquals(TextSimilarity.seqSim("", ""), 1.0);
+        Assert.assertEquals(TextSimilarity.seqSim("abc", ""), 0.0);
+    }
+
+    @Test
+    public void normMatchesRegexVersion() {
+        Random rnd = new Random(11);
+        for (int n = 0; n < 2000; n++) {
+            String s = random(rnd, rnd.nextInt(30));
+            Assert.assertEquals(TextSimilarity.norm(s), s.toLowerCase().replaceAll("[^a-z0-9]+", " ").trim(), "[" + s + "]");
+        }
+        String already = "sauce labs backpack";
+        Assert.assertSame(TextSimilarity.norm(already), already);
+    }
+
+    @Test
+    public void indexedBestTextMatchEqualsLinearScan() {
+        Random rnd = new Random(3);
+        String[] words = { "login", "log in", "sign in", "submit", "cart", "add to cart", "checkout", "widgets", "elements" };
+        for (int round = 0; round < 200; round++) {
+            List<HealDTO.Candidate> cands = new ArrayList<>();
+            int size = 1 + rnd.nextInt(60);
+            for (int i = 0; i < size; i++) {
+                String text = words[rnd.nextInt(words.length)] + (rnd.nextBoolean() ? " " + random(rnd, rnd.nextInt(6)) : "");
+                cands.add(new HealDTO.Candidate("//div[" + i + "]", text, "div", i, ""));
+            }
+            String old = TextSimilarity.norm(words[rnd.nextInt(words.length)] + random(rnd, rnd.nextInt(3)));
+
+            int expected = -1;
+            double bestSim = 0.55;
+            for (int i = 0; i < size; i++) {
+                String t = CandidateTextIndex.cleanText(cands.get(i).text, cands.get(i).id, cands.get(i).dataTestId);
+                if (t.isEmpty()) continue;
+                double sim = TextSimilarity.seqSim(old, TextSimilarity.norm(t));
+                if (sim > bestSim) { bestSim = sim; expected = i; }
+            }
+            Assert.assertEquals(CandidateTextIndex.of(cands).bestTextMatch(old, 0.55), expected, "query " + old);
+        }
+    }
+
+    private static String random(Random rnd, int len) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < len; i++) sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+        return sb.toString();
+    }
+
+    private static double tableSeqSim(String a, String b) {
+        if (a.isEmpty() && b.isEmpty()) return 1.0;
+        if (a.isEmpty() || b.isEmpty()) return 0.0;
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 1; i <= a.length(); i++)
+            for (int j = 1; j <= b.length(); j++)
+                dp[i][j] = a.charAt(i - 1) == b.charAt(j - 1) ? dp[i - 1][j - 1] + 1 : Math.max(dp[i - 1][j], dp[i][j - 1]);
+        return 2.0 * dp[a.length()][b.length()] / (a.length() + b.length());
+    }
+}